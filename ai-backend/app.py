@@ -7,11 +7,13 @@ import sys
 import json
 import tempfile
 import uuid  
-from flask import Flask, request, jsonify
+import threading
+import cbor2
+from flask import Flask, Response, request, jsonify
 from tensorflow.keras.models import load_model
 from tensorflow.keras.metrics import Metric
 from werkzeug.utils import secure_filename
-from common import IoU, load_models, preprocess_fingerprint, create_embedding_model
+from common import IoU, ModelCache, preprocess_fingerprint
 
 app = Flask(__name__)
 
@@ -21,6 +23,11 @@ UPLOAD_FOLDER = "temp_uploads"
 MODELS_DIR = os.path.dirname(os.path.abspath(__file__))
 os.makedirs(UPLOAD_FOLDER, exist_ok=True)
 
+model_cache = ModelCache(capacity=int(os.environ.get("MODEL_CACHE_SIZE", "4")))
+
+# cosine similarity a probe needs against its best gallery entry to count as a match
+MATCH_THRESHOLD = float(os.environ.get("MATCH_THRESHOLD", "0.85"))
+
 
 def convert_to_serializable(obj):
     if isinstance(obj, dict):
@@ -74,11 +81,20 @@ def create_id_folders():
 
 
 
-def load_embeddings_db():
-    script_dir = os.path.dirname(os.path.abspath(__file__))
-    db_dir = os.path.join(script_dir, "embedding_models")
-    db_path = os.path.join(db_dir, "employee_embeddings.npy")
-    
+def embeddings_db_path(recognition_model_path=None):
+    db_dir = os.path.join(os.path.dirname(os.path.abspath(__file__)), "embedding_models")
+    if recognition_model_path:
+        return os.path.join(db_dir, recognition_model_path, "employee_embeddings.npy")
+    return os.path.join(db_dir, "employee_embeddings.npy")
+
+
+def load_embeddings_db(recognition_model_path=None):
+    """Loads the embeddings of `recognition_model_path`, or the shared database when no model is given.
+
+    A model without its own database gets an empty one rather than the shared file, whose
+    vectors may come from a different model.
+    """
+    db_path = embeddings_db_path(recognition_model_path)
     result = {"employee_embeddings": {}}
     
     if os.path.exists(db_path):
@@ -86,10 +102,6 @@ def load_embeddings_db():
             embeddings_db = np.load(db_path, allow_pickle=True).item()
             result["employee_embeddings"] = embeddings_db
             print(f"Loaded {len(embeddings_db)} employee embeddings from {db_path}")
-            
-            for emp_id, embedding in embeddings_db.items():
-                print(f"Employee {emp_id} embedding shape: {embedding.shape}, type: {type(embedding)}")
-                print(f"Sample values: {embedding[:5]}")
         except Exception as e:
             print(f"Error loading employee embeddings database: {e}", file=sys.stderr)
             result["employee_embeddings"] = {}
@@ -99,6 +111,41 @@ def load_embeddings_db():
     return result
 
 
+class GalleryCache:
+    """Normalized gallery matrices keyed by recognition model path, so a recognize call
+    does not reload the embeddings database. An entry is reloaded when its file changes,
+    e.g. after update_fingerprint.py has enrolled new employees.
+    """
+
+    def __init__(self):
+        self._entries = {}
+        self._lock = threading.Lock()
+
+    def get(self, recognition_model_path):
+        """Returns (employee_ids, gallery) with unit-length rows, or None if the model has no embeddings."""
+        try:
+            version = os.stat(embeddings_db_path(recognition_model_path)).st_mtime_ns
+        except OSError:
+            return None
+        with self._lock:
+            entry = self._entries.get(recognition_model_path)
+            if entry is not None and entry[0] == version:
+                return entry[1]
+
+        employee_embeddings_db = load_embeddings_db(recognition_model_path).get("employee_embeddings", {})
+        if not employee_embeddings_db:
+            return None
+        employee_ids = list(employee_embeddings_db.keys())
+        gallery = np.stack([employee_embeddings_db[e] for e in employee_ids]).astype(np.float32)
+        gallery /= np.linalg.norm(gallery, axis=1, keepdims=True)
+
+        with self._lock:
+            self._entries[recognition_model_path] = (version, (employee_ids, gallery))
+        return employee_ids, gallery
+
+
+gallery_cache = GalleryCache()
+
 
 def recognize_employee(
     image_path,
@@ -106,11 +153,12 @@ def recognize_employee(
     segmentation_model,
     recognition_shape,
     segmentation_shape,
-    threshold=0.85, 
+    threshold=MATCH_THRESHOLD,
     target_employee_id=None,
+    recognition_model_path=None,
 ):
     try:
-        embeddings_dbs = load_embeddings_db()
+        embeddings_dbs = load_embeddings_db(recognition_model_path)
         employee_embeddings_db = embeddings_dbs.get("employee_embeddings", {})
 
         if not employee_embeddings_db:
@@ -142,6 +190,7 @@ def recognize_employee(
             return {
                 "similarity": {
                     "employee_id": target_employee_id,
+                    "fingerprint_id": None,
                     "confidence": float(similarity),
                     "match": similarity >= threshold,
                 }
@@ -171,6 +220,7 @@ def recognize_employee(
         result = {
             "similarity": {
                 "employee_id": best_match_employee if matched else None,
+                "fingerprint_id": None,
                 "confidence": float(best_similarity_employee),
                 "match": matched,
             }
@@ -209,17 +259,11 @@ def api_recognize_fingerprint():
         filepath = os.path.join(temp_dir, filename)
         file.save(filepath)
 
-        recognition_model, segmentation_model, recognition_shape, segmentation_shape = (
-            load_models(
-                segmentation_model_path_name=segmentation_model_path,
-                recognition_model_path_name=recognition_model_path,
-            )
-        )
-
-        if recognition_model is None or segmentation_model is None:
+        models = model_cache.get(segmentation_model_path, recognition_model_path)
+        if models is None:
             return jsonify({"error": "Failed to load models"}), 500
 
-        embedding_model = create_embedding_model(recognition_model)
+        embedding_model, segmentation_model, recognition_shape, segmentation_shape = models
 
         try:
             result = recognize_employee(
@@ -229,6 +273,7 @@ def api_recognize_fingerprint():
                 recognition_shape,
                 segmentation_shape,
                 target_employee_id=target_employee_id,
+                recognition_model_path=recognition_model_path,
             )
             print("result", result)
 
@@ -257,6 +302,280 @@ def api_recognize_fingerprint():
         return jsonify({"error": str(e)}), 500
     
 
+@app.route("/api/embed", methods=["POST"])
+def api_embed_fingerprint():
+    try:
+        if "file" not in request.files:
+            return jsonify({"error": "No file part"}), 400
+
+        file = request.files["file"]
+
+        if file.filename == "":
+            return jsonify({"error": "No selected file"}), 400
+
+        segmentation_model_path = request.form.get("segmentation_model_path")
+        recognition_model_path = request.form.get("recognition_model_path")
+
+        if not segmentation_model_path or not recognition_model_path:
+            return jsonify({"error": "Missing model path parameters"}), 400
+
+        filename = secure_filename(file.filename)
+        temp_dir = tempfile.mkdtemp()
+        filepath = os.path.join(temp_dir, filename)
+        file.save(filepath)
+
+        models = model_cache.get(segmentation_model_path, recognition_model_path)
+        if models is None:
+            return jsonify({"error": "Failed to load models"}), 500
+
+        embedding_model, segmentation_model, recognition_shape, segmentation_shape = models
+
+        try:
+            processed_img = preprocess_fingerprint(
+                filepath, segmentation_model, recognition_shape, segmentation_shape
+            )
+            processed_img = np.expand_dims(processed_img, axis=0)
+            embedding = embedding_model.predict(processed_img, verbose=0)[0]
+        finally:
+            try:
+                os.remove(filepath)
+                os.rmdir(temp_dir)
+            except Exception as e:
+                print(f"Warning: Failed to remove temporary file: {e}")
+
+        return jsonify({
+            "embedding": convert_to_serializable(embedding),
+            "dimension": int(embedding.shape[0]),
+            "recognition_model_path": recognition_model_path,
+        }), 200
+
+    except Exception as e:
+        print(f"Error in embed API: {e}", file=sys.stderr)
+        import traceback
+
+        traceback.print_exc()
+        return jsonify({"error": str(e)}), 500
+
+
+@app.route("/api/embed-batch", methods=["POST"])
+def api_embed_fingerprint_batch():
+    try:
+        files = request.files.getlist("files")
+        if not files:
+            return jsonify({"error": "No file part"}), 400
+
+        segmentation_model_path = request.form.get("segmentation_model_path")
+        recognition_model_path = request.form.get("recognition_model_path")
+
+        if not segmentation_model_path or not recognition_model_path:
+            return jsonify({"error": "Missing model path parameters"}), 400
+
+        models = model_cache.get(segmentation_model_path, recognition_model_path)
+        if models is None:
+            return jsonify({"error": "Failed to load models"}), 500
+
+        embedding_model, segmentation_model, recognition_shape, segmentation_shape = models
+
+        # Preprocess every image first so that the embedding model runs once for the whole batch.
+        results = [None] * len(files)
+        images = []
+        positions = []
+        temp_dir = tempfile.mkdtemp()
+        try:
+            for i, file in enumerate(files):
+                filepath = os.path.join(temp_dir, f"{i}_{secure_filename(file.filename) or 'scan'}")
+                file.save(filepath)
+                try:
+                    images.append(preprocess_fingerprint(
+                        filepath, segmentation_model, recognition_shape, segmentation_shape
+                    ))
+                    positions.append(i)
+                except Exception as e:
+                    results[i] = {"error": f"Preprocessing failed: {str(e)}"}
+                finally:
+                    os.remove(filepath)
+        finally:
+            try:
+                os.rmdir(temp_dir)
+            except Exception as e:
+                print(f"Warning: Failed to remove temporary directory: {e}")
+
+        dimension = 0
+        if images:
+            embeddings = embedding_model.predict(np.stack(images), batch_size=len(images), verbose=0)
+            dimension = int(embeddings.shape[1])
+            for position, embedding in zip(positions, embeddings):
+                results[position] = {"embedding": convert_to_serializable(embedding)}
+
+        return jsonify({
+            "results": results,
+            "dimension": dimension,
+            "recognition_model_path": recognition_model_path,
+        }), 200
+
+    except Exception as e:
+        print(f"Error in embed batch API: {e}", file=sys.stderr)
+        import traceback
+
+        traceback.print_exc()
+        return jsonify({"error": str(e)}), 500
+
+
+# Binary protocol (/api/v2/*): request and response bodies are CBOR maps. A request
+# carries the model pair and a list of raw image byte strings; the response holds one
+# entry per image, and embeddings travel as little-endian float32 byte strings.
+
+def cbor_response(obj, status=200):
+    return Response(cbor2.dumps(obj), status=status, mimetype="application/cbor")
+
+
+def read_inference_request():
+    try:
+        frame = cbor2.loads(request.get_data())
+    except Exception as e:
+        return None, cbor_response({"error": f"Malformed CBOR request: {str(e)}"}, 400)
+
+    images = frame.get("images") or []
+    if not images:
+        return None, cbor_response({"error": "No images"}, 400)
+    if not frame.get("segmentation_model_path") or not frame.get("recognition_model_path"):
+        return None, cbor_response({"error": "Missing model path parameters"}, 400)
+    return frame, None
+
+
+def embed_images(images, models):
+    """Preprocess every image, then run the embedding model once for the whole list.
+    Returns (embeddings, positions, errors) where errors maps index -> message."""
+    embedding_model, segmentation_model, recognition_shape, segmentation_shape = models
+
+    processed = []
+    positions = []
+    errors = {}
+    temp_dir = tempfile.mkdtemp()
+    try:
+        for i, image in enumerate(images):
+            filepath = os.path.join(temp_dir, f"{i}_scan.png")
+            with open(filepath, "wb") as f:
+                f.write(image)
+            try:
+                processed.append(preprocess_fingerprint(
+                    filepath, segmentation_model, recognition_shape, segmentation_shape
+                ))
+                positions.append(i)
+            except Exception as e:
+                errors[i] = f"Preprocessing failed: {str(e)}"
+            finally:
+                os.remove(filepath)
+    finally:
+        try:
+            os.rmdir(temp_dir)
+        except Exception as e:
+            print(f"Warning: Failed to remove temporary directory: {e}")
+
+    embeddings = np.empty((0, 0), dtype=np.float32)
+    if processed:
+        embeddings = embedding_model.predict(np.stack(processed), batch_size=len(processed), verbose=0)
+    return embeddings, positions, errors
+
+
+@app.route("/api/v2/recognize", methods=["POST"])
+def api_recognize_fingerprint_v2():
+    try:
+        frame, error = read_inference_request()
+        if error is not None:
+            return error
+
+        cached_gallery = gallery_cache.get(frame["recognition_model_path"])
+        if cached_gallery is None:
+            return cbor_response({"error": "Embeddings database is empty"}, 500)
+        employee_ids, gallery = cached_gallery
+
+        models = model_cache.get(frame["segmentation_model_path"], frame["recognition_model_path"])
+        if models is None:
+            return cbor_response({"error": "Failed to load models"}, 500)
+
+        images = frame["images"]
+        embeddings, positions, errors = embed_images(images, models)
+
+        results = [{"error": errors.get(i, "missing result")} for i in range(len(images))]
+        for position, embedding in zip(positions, embeddings):
+            embedding = embedding / np.linalg.norm(embedding)
+            similarities = gallery @ embedding
+            best = int(np.argmax(similarities))
+            confidence = float(similarities[best])
+            matched = confidence >= MATCH_THRESHOLD
+            # same fields as /api/recognize; the database keeps one embedding per employee
+            results[position] = {
+                "employee_id": employee_ids[best] if matched else None,
+                "fingerprint_id": None,
+                "confidence": confidence,
+                "match": matched,
+            }
+
+        return cbor_response({"results": results})
+
+    except Exception as e:
+        print(f"Error in v2 recognize API: {e}", file=sys.stderr)
+        import traceback
+
+        traceback.print_exc()
+        return cbor_response({"error": str(e)}, 500)
+
+
+@app.route("/api/v2/embed", methods=["POST"])
+def api_embed_fingerprint_v2():
+    try:
+        frame, error = read_inference_request()
+        if error is not None:
+            return error
+
+        models = model_cache.get(frame["segmentation_model_path"], frame["recognition_model_path"])
+        if models is None:
+            return cbor_response({"error": "Failed to load models"}, 500)
+
+        images = frame["images"]
+        embeddings, positions, errors = embed_images(images, models)
+
+        results = [{"error": errors.get(i, "missing result")} for i in range(len(images))]
+        for position, embedding in zip(positions, embeddings):
+            results[position] = {"embedding": np.asarray(embedding, dtype="<f4").tobytes()}
+
+        return cbor_response({
+            "results": results,
+            "dimension": int(embeddings.shape[1]) if positions else 0,
+            "recognition_model_path": frame["recognition_model_path"],
+        })
+
+    except Exception as e:
+        print(f"Error in v2 embed API: {e}", file=sys.stderr)
+        import traceback
+
+        traceback.print_exc()
+        return cbor_response({"error": str(e)}, 500)
+
+
+@app.route("/api/embeddings", methods=["GET"])
+def get_embeddings():
+    try:
+        recognition_model_path = request.args.get("recognition_model_path")
+        employee_embeddings_db = load_embeddings_db(recognition_model_path).get("employee_embeddings", {})
+
+        embeddings = [
+            {"employee_id": employee_id, "embedding": convert_to_serializable(embedding)}
+            for employee_id, embedding in employee_embeddings_db.items()
+        ]
+        dimension = len(embeddings[0]["embedding"]) if embeddings else 0
+
+        return jsonify({"dimension": dimension, "embeddings": embeddings}), 200
+
+    except Exception as e:
+        print(f"Error in embeddings API: {e}", file=sys.stderr)
+        import traceback
+
+        traceback.print_exc()
+        return jsonify({"error": str(e)}), 500
+
+
 @app.route("/api/models", methods=["GET"])
 def get_models():
     try:
@@ -292,6 +611,46 @@ def get_models():
         import traceback
         traceback.print_exc()
         return jsonify({"error": str(e)}), 500
-    
+
+
+@app.route("/api/models/preload", methods=["POST"])
+def preload_models():
+    try:
+        data = request.get_json(silent=True) or {}
+        keys = []
+        for model in data.get("models", []):
+            segmentation_model_path = model.get("segmentation_model_path")
+            recognition_model_path = model.get("recognition_model_path")
+            if not segmentation_model_path or not recognition_model_path:
+                return jsonify({"error": "Missing model path parameters"}), 400
+            keys.append((segmentation_model_path, recognition_model_path))
+
+        failed = model_cache.pin(keys)
+
+        return jsonify({
+            "resident": model_cache.resident(),
+            "failed": [
+                {"segmentation_model_path": key[0], "recognition_model_path": key[1]}
+                for key in failed
+            ],
+        }), 200
+
+    except Exception as e:
+        print(f"Error in preload models API: {e}", file=sys.stderr)
+        import traceback
+        traceback.print_exc()
+        return jsonify({"error": str(e)}), 500
+
+
+@app.route("/api/models/resident", methods=["GET"])
+def get_resident_models():
+    return jsonify({
+        "resident": model_cache.resident(),
+        "capacity": model_cache.capacity,
+        "hits": model_cache.hits,
+        "loads": model_cache.loads,
+    }), 200
+
+
 if __name__ == "__main__":
     app.run(host="0.0.0.0", port=5000, debug=False)
@@ -7,6 +7,8 @@ import cv2
 import sys
 import argparse
 import json
+import threading
+from collections import OrderedDict
 from tensorflow.keras.models import load_model
 from tensorflow.keras.metrics import Metric
 
@@ -116,3 +118,82 @@ def create_embedding_model(recognition_model):
     embedding_model = keras.Model(inputs=new_input, outputs=embedding)
     return embedding_model
 
+
+
+class ModelCache:
+    """Keeps loaded model pairs in memory, keyed by (segmentation, recognition) path name.
+
+    Loading a pair and building its embedding model happens once per process.
+    Pinned pairs are never evicted; beyond `capacity`, the least recently used
+    unpinned pair is dropped.
+    """
+
+    def __init__(self, capacity):
+        self.capacity = capacity
+        self._entries = OrderedDict()
+        self._pinned = set()
+        self._lock = threading.Lock()
+        self._load_lock = threading.Lock()
+        self.hits = 0
+        self.loads = 0
+
+    def get(self, segmentation_model_path_name, recognition_model_path_name):
+        """Returns (embedding_model, segmentation_model, recognition_shape, segmentation_shape), or None if loading failed."""
+        key = (segmentation_model_path_name, recognition_model_path_name)
+        with self._lock:
+            entry = self._entries.get(key)
+            if entry is not None:
+                self._entries.move_to_end(key)
+                self.hits += 1
+                return entry
+
+        with self._load_lock:
+            with self._lock:
+                entry = self._entries.get(key)
+            if entry is not None:
+                return entry
+
+            recognition_model, segmentation_model, recognition_shape, segmentation_shape = load_models(
+                segmentation_model_path_name=segmentation_model_path_name,
+                recognition_model_path_name=recognition_model_path_name,
+            )
+            if recognition_model is None or segmentation_model is None:
+                return None
+            entry = (create_embedding_model(recognition_model), segmentation_model, recognition_shape, segmentation_shape)
+
+            with self._lock:
+                self.loads += 1
+                self._entries[key] = entry
+                self._evict()
+            return entry
+
+    def pin(self, keys):
+        """Loads every pair in `keys` and makes them the pinned set. Returns the pairs that are not resident."""
+        # Pin first so loading one new pair cannot evict another; the old pins are released here.
+        with self._lock:
+            self._pinned = set(keys)
+        for key in keys:
+            self.get(*key)
+        with self._lock:
+            failed = [key for key in keys if key not in self._entries]
+            self._pinned -= set(failed)
+            self._evict()
+        return failed
+
+    def resident(self):
+        with self._lock:
+            return [
+                {
+                    "segmentation_model_path": key[0],
+                    "recognition_model_path": key[1],
+                    "pinned": key in self._pinned,
+                }
+                for key in self._entries
+            ]
+
+    def _evict(self):
+        for key in list(self._entries):
+            if len(self._entries) <= self.capacity:
+                break
+            if key not in self._pinned:
+                del self._entries[key]
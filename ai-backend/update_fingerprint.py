@@ -148,7 +148,7 @@ def update_fingerprint_model(segmentation_model_path_name="unet_segmentation_v1_
     
     print(f"Scanning dataset directory: {dataset_dir}")
     
-    db_dir = os.path.join(script_dir, "embedding_models")
+    db_dir = os.path.join(script_dir, "embedding_models", recognition_model_path_name)
     os.makedirs(db_dir, exist_ok=True)
     db_path = os.path.join(db_dir, "employee_embeddings.npy")
     
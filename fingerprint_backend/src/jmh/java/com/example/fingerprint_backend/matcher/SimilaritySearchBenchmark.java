@@ -0,0 +1,92 @@
+package com.example.fingerprint_backend.matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Best-match search over the in-memory gallery for each matcher type and
+ * gallery size. Probes are noisy copies of enrolled embeddings, like a
+ * rescan of an enrolled finger. Recall sampling is off so only search is
+ * timed; the HNSW graph is built once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SimilaritySearchBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int gallerySize;
+
+    @Param({ExactScanMatcher.TYPE, HnswMatcher.TYPE})
+    public String matcherType;
+
+    @Param({"128"})
+    public int dimension;
+
+    @Param({"16"})
+    public int hnswM;
+
+    @Param({"200"})
+    public int hnswEfConstruction;
+
+    @Param({"64"})
+    public int hnswEfSearch;
+
+    private FingerprintMatcher matcher;
+    private float[][] probes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        EmbeddingIndex index = new EmbeddingIndex(dimension);
+        float[][] enrolled = new float[gallerySize][];
+        for (int row = 0; row < gallerySize; row++) {
+            enrolled[row] = gaussian(random, dimension);
+            index.add("employee-" + row, "finger-" + row, enrolled[row]);
+        }
+        matcher = HnswMatcher.TYPE.equals(matcherType)
+                ? HnswMatcher.build(index, hnswM, hnswEfConstruction, hnswEfSearch, 0)
+                : new ExactScanMatcher(index);
+
+        probes = new float[PROBES][];
+        for (int i = 0; i < PROBES; i++) {
+            float[] source = enrolled[random.nextInt(gallerySize)];
+            float[] probe = new float[dimension];
+            for (int d = 0; d < dimension; d++) {
+                probe[d] = source[d] + 0.1f * (float) random.nextGaussian();
+            }
+            probes[i] = probe;
+        }
+    }
+
+    @Benchmark
+    public MatchCandidate best() {
+        return matcher.best(probes[next++ & (PROBES - 1)]);
+    }
+
+    private static float[] gaussian(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
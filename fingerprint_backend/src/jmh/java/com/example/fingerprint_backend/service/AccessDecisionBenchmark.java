@@ -0,0 +1,125 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.Area;
+import com.example.fingerprint_backend.model.Employee;
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.model.RecognitionResult;
+import com.example.fingerprint_backend.repository.AreaAccessRepository;
+import com.example.fingerprint_backend.repository.AreaRepository;
+import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.repository.FingerprintRecognitionModelRepository;
+import com.example.fingerprint_backend.repository.FingerprintSegmentationModelRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The decide stage of {@code processRecognition}: employee lookup in the
+ * {@link ReferenceDataCache}, the {@link AuthorizationMatrix} check and building
+ * the {@code AccessLog}/{@code Recognition} pair. Repositories are mocks that
+ * are only hit while the cache warms up; meters go to a {@code SimpleMeterRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessDecisionBenchmark {
+
+    @Param({"1000"})
+    public int employees;
+
+    @Param({"50"})
+    public int areas;
+
+    private FingerprintRecognitionService service;
+    private FingerprintRecognitionService.ResolvedRequest[] requests;
+    private RecognitionResult[] matches;
+    private RecognitionResult noMatch;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Object[]> grants = new ArrayList<>();
+        EmployeeRepository employeeRepository = Mockito.mock(EmployeeRepository.class);
+        matches = new RecognitionResult[employees];
+        for (int i = 0; i < employees; i++) {
+            String employeeId = "employee-" + i;
+            Mockito.when(employeeRepository.findById(employeeId))
+                    .thenReturn(Optional.of(new Employee(employeeId, "Employee " + i, "0", "-", 5)));
+            matches[i] = new RecognitionResult(employeeId, 0.93, "finger-" + i, true);
+            for (int area = 0; area < areas; area++) {
+                if (random.nextBoolean()) {
+                    grants.add(new Object[]{employeeId, "area-" + area});
+                }
+            }
+        }
+        AreaAccessRepository areaAccessRepository = Mockito.mock(AreaAccessRepository.class);
+        Mockito.when(areaAccessRepository.findAllEmployeeAreaPairs()).thenReturn(grants);
+        AuthorizationMatrix authorizationMatrix = new AuthorizationMatrix(areaAccessRepository);
+        authorizationMatrix.reload();
+
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(
+                Mockito.mock(AreaRepository.class),
+                employeeRepository,
+                Mockito.mock(FingerprintSegmentationModelRepository.class),
+                Mockito.mock(FingerprintRecognitionModelRepository.class));
+        ReflectionTestUtils.setField(referenceDataCache, "enabled", true);
+
+        RecognitionMetrics recognitionMetrics = new RecognitionMetrics(new SimpleMeterRegistry());
+        service = new FingerprintRecognitionService(
+                null, authorizationMatrix, referenceDataCache, null, null, null, null, null, null, null,
+                recognitionMetrics);
+
+        FingerprintSegmentationModel segmentationModel = FingerprintSegmentationModel.builder()
+                .id("segmentation").pathName("segmentation").build();
+        FingerprintRecognitionModel recognitionModel = FingerprintRecognitionModel.builder()
+                .id("recognition").pathName("recognition").build();
+        requests = new FingerprintRecognitionService.ResolvedRequest[areas];
+        for (int area = 0; area < areas; area++) {
+            Area gate = Area.builder().id("area-" + area).name("Area " + area).securityLevel(area % 5).build();
+            requests[area] = new FingerprintRecognitionService.ResolvedRequest(
+                    gate,
+                    segmentationModel,
+                    recognitionModel,
+                    recognitionMetrics.tags(gate, "ENTRY", segmentationModel, recognitionModel));
+        }
+        noMatch = new RecognitionResult(null, 0.41, null, false);
+
+        for (int i = 0; i < employees; i++) {
+            referenceDataCache.findEmployee("employee-" + i);
+        }
+    }
+
+    @Benchmark
+    public Object matched() {
+        int i = next++ & Integer.MAX_VALUE;
+        return service.decide(requests[i % requests.length], matches[i % matches.length], "ENTRY");
+    }
+
+    @Benchmark
+    public Object unmatched() {
+        int i = next++ & Integer.MAX_VALUE;
+        return service.decide(requests[i % requests.length], noMatch, "ENTRY");
+    }
+}
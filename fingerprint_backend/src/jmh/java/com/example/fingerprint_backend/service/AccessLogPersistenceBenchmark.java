@@ -0,0 +1,104 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.FingerprintBackendApplication;
+import com.example.fingerprint_backend.model.AccessLog;
+import com.example.fingerprint_backend.model.Area;
+import com.example.fingerprint_backend.model.Employee;
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.model.Recognition;
+import com.example.fingerprint_backend.repository.AreaRepository;
+import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.repository.FingerprintRecognitionModelRepository;
+import com.example.fingerprint_backend.repository.FingerprintSegmentationModelRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous JPA persistence of an {@code AccessLog}/{@code Recognition} pair
+ * through {@link AccessLogWriter} (journal disabled), against an in-memory H2
+ * database in MySQL mode. Includes the transaction and the attendance rollup
+ * upsert that the writer performs with the rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessLogPersistenceBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private AccessLogWriter accessLogWriter;
+    private Area area;
+    private Employee employee;
+    private FingerprintSegmentationModel segmentationModel;
+    private FingerprintRecognitionModel recognitionModel;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FingerprintBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--fingerprint.journal.enabled=false",
+                        "--fingerprint.matcher.enabled=false",
+                        "--fingerprint.models.preload-on-startup=false",
+                        "--logging.level.root=WARN");
+        accessLogWriter = context.getBean(AccessLogWriter.class);
+
+        area = context.getBean(AreaRepository.class)
+                .save(Area.builder().id("area-benchmark").name("Benchmark").securityLevel(1).build());
+        employee = context.getBean(EmployeeRepository.class)
+                .save(new Employee("employee-benchmark", "Benchmark", "0", "-", 5));
+        segmentationModel = context.getBean(FingerprintSegmentationModelRepository.class)
+                .save(FingerprintSegmentationModel.builder().name("segmentation").pathName("segmentation").build());
+        recognitionModel = context.getBean(FingerprintRecognitionModelRepository.class)
+                .save(FingerprintRecognitionModel.builder().name("recognition").pathName("recognition").build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AccessLog record() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        AccessLog accessLog = AccessLog.builder()
+                .area(area)
+                .employee(employee)
+                .timestamp(now)
+                .authorized(true)
+                .accessType("ENTRY")
+                .build();
+        Recognition recognition = Recognition.builder()
+                .employee(employee)
+                .fingerprintSegmentationModel(segmentationModel)
+                .fingerprintRecognitionModel(recognitionModel)
+                .timestamp(now)
+                .confidence(0.93f)
+                .build();
+        return accessLogWriter.record(accessLog, recognition);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.RecognitionResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the {@code /api/recognize} response body, as done for every scan
+ * that is not matched locally.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecognitionResponseParsingBenchmark {
+
+    private static final String MATCH = "{\"similarity\": {\"employee_id\": \"3f1c9a52-7d4e-4b8a-9c61-2e5f0b7a8d93\", "
+            + "\"confidence\": 0.9312648773193359, \"match\": true}}";
+    private static final String NO_MATCH = "{\"similarity\": {\"employee_id\": null, "
+            + "\"confidence\": 0.4127304553985596, \"match\": false}}";
+
+    private FingerprintRecognitionService service;
+
+    @Setup
+    public void setUp() {
+        service = new FingerprintRecognitionService(
+                null, null, null, null, null, null, null, new ObjectMapper(), null, null, null);
+    }
+
+    @Benchmark
+    public RecognitionResult match() throws Exception {
+        return service.parseRecognitionResponse(MATCH);
+    }
+
+    @Benchmark
+    public RecognitionResult noMatch() throws Exception {
+        return service.parseRecognitionResponse(NO_MATCH);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.fingerprint_backend.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated inference latency, in milliseconds. Parsed from a spec:
+ * <ul>
+ *   <li>{@code fixed:<ms>}</li>
+ *   <li>{@code uniform:<min>:<max>}</li>
+ *   <li>{@code lognormal:<median>:<sigma>} - right-skewed, like real model serving</li>
+ *   <li>{@code bimodal:<fast>:<slow>:<slowFraction>} - mostly {@code fast}, sometimes {@code slow}
+ *       (cold model, GC pause)</li>
+ * </ul>
+ */
+public abstract class LatencyDistribution {
+
+    private final String spec;
+
+    private LatencyDistribution(String spec) {
+        this.spec = spec;
+    }
+
+    public abstract long sampleMillis();
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed": {
+                    long millis = Long.parseLong(parts[1]);
+                    return new LatencyDistribution(spec) {
+                        @Override
+                        public long sampleMillis() {
+                            return millis;
+                        }
+                    };
+                }
+                case "uniform": {
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    return new LatencyDistribution(spec) {
+                        @Override
+                        public long sampleMillis() {
+                            return ThreadLocalRandom.current().nextLong(min, max + 1);
+                        }
+                    };
+                }
+                case "lognormal": {
+                    double mu = Math.log(Double.parseDouble(parts[1]));
+                    double sigma = Double.parseDouble(parts[2]);
+                    return new LatencyDistribution(spec) {
+                        @Override
+                        public long sampleMillis() {
+                            return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+                        }
+                    };
+                }
+                case "bimodal": {
+                    long fast = Long.parseLong(parts[1]);
+                    long slow = Long.parseLong(parts[2]);
+                    double slowFraction = Double.parseDouble(parts[3]);
+                    return new LatencyDistribution(spec) {
+                        @Override
+                        public long sampleMillis() {
+                            return ThreadLocalRandom.current().nextDouble() < slowFraction ? slow : fast;
+                        }
+                    };
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed latency distribution: " + spec, e);
+        }
+    }
+}
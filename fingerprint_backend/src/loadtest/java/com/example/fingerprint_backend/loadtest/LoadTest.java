@@ -0,0 +1,518 @@
+package com.example.fingerprint_backend.loadtest;
+
+import com.example.fingerprint_backend.FingerprintBackendApplication;
+import com.example.fingerprint_backend.model.Area;
+import com.example.fingerprint_backend.model.Employee;
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.repository.AreaRepository;
+import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.repository.FingerprintRecognitionModelRepository;
+import com.example.fingerprint_backend.repository.FingerprintSegmentationModelRepository;
+import com.example.fingerprint_backend.service.AccessLogWriter;
+import com.example.fingerprint_backend.service.AreaAccessBulkService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of {@code POST /api/fingerprint-recognition/recognize}.
+ * <p>
+ * Starts a {@link StubInferenceServer}, boots the application against it (H2 in
+ * MySQL mode unless {@code --spring.datasource.*} says otherwise), seeds
+ * employees, one area per gate, access grants, a segmentation model and two
+ * recognition models, then replays each selected {@link Scenario}. Scans use
+ * the production path by default: the active recognition model's gallery is
+ * imported from the stub into the local matcher, and probes are embedded
+ * through the embedding batcher. The {@code remote-inference} scenario names
+ * the second model, which has no gallery, to measure the remote fallback. Every gate is an open-loop Poisson source, and
+ * latency is measured from the time a scan was scheduled rather than sent, so a
+ * slow server cannot hide its queueing (coordinated omission). For each scenario
+ * it reports throughput, latency percentiles, response outcomes and the rate of
+ * {@code access_log} and {@code recognition} rows written, and writes all of it
+ * to a JSON report.
+ * <p>
+ * Options, all {@code --name=value}:
+ * <ul>
+ *   <li>{@code scenario} - comma-separated {@link Scenario#builtIn} names, or {@code all}; default {@code steady}</li>
+ *   <li>{@code gates}, {@code rate}, {@code duration}, {@code warmup}, {@code latency},
+ *       {@code match-rate}, {@code failure-rate} - override the selected scenarios</li>
+ *   <li>{@code employees} (200), {@code grant-rate} (0.8) - seeded population</li>
+ *   <li>{@code report} - JSON report path, default {@code target/loadtest-report.json}</li>
+ *   <li>{@code verbose} - keep the application's stdout while traffic runs</li>
+ * </ul>
+ * Any {@code --spring.*}, {@code --server.*}, {@code --logging.*} or
+ * {@code --fingerprint.*} option is passed to the application.
+ */
+public class LoadTest {
+
+    private static final String RECOGNIZE_PATH = "/api/fingerprint-recognition/recognize";
+    private static final String BOUNDARY = "----loadtest-boundary";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Map<String, String> options;
+    private final PrintStream out;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private StubInferenceServer stub;
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private AccessLogWriter accessLogWriter;
+    private HttpClient httpClient;
+    private ExecutorService clientExecutor;
+    private SyntheticScans scans;
+    private URI recognizeUri;
+    private List<String> employeeIds;
+    private String segmentationModelId;
+    private String remoteRecognitionModelId;
+
+    private LoadTest(Map<String, String> options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+
+        LoadTest loadTest = new LoadTest(options, System.out);
+        int status = 0;
+        try {
+            loadTest.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        } finally {
+            loadTest.close();
+        }
+        System.exit(status);
+    }
+
+    private void run() throws Exception {
+        List<Scenario> scenarios = selectScenarios();
+        int gates = scenarios.stream().mapToInt(Scenario::getGates).max().orElse(0);
+
+        stub = new StubInferenceServer();
+        start();
+        seed(gates, Integer.parseInt(options.getOrDefault("employees", "200")),
+                Double.parseDouble(options.getOrDefault("grant-rate", "0.8")));
+
+        clientExecutor = Executors.newCachedThreadPool(daemon("loadtest-client"));
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+        scans = new SyntheticScans(32, 42);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        boolean verbose = Boolean.parseBoolean(options.getOrDefault("verbose", "false"));
+        for (Scenario scenario : scenarios) {
+            // the recognition path prints a line per scan
+            if (!verbose) {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            }
+            Map<String, Object> result;
+            try {
+                result = run(scenario);
+            } finally {
+                System.setOut(out);
+            }
+            print(scenario, result);
+            results.add(result);
+        }
+
+        Path report = Path.of(options.getOrDefault("report", "target/loadtest-report.json"));
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        objectMapper.writeValue(report.toFile(), results);
+        out.println("Report written to " + report.toAbsolutePath());
+    }
+
+    private List<Scenario> selectScenarios() {
+        Map<String, Scenario> builtIn = Scenario.builtIn();
+        String selected = options.getOrDefault("scenario", "steady");
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : selected.equals("all") ? builtIn.keySet() : List.of(selected.split(","))) {
+            Scenario scenario = builtIn.get(name.trim());
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario " + name + ", expected one of " + builtIn.keySet());
+            }
+            Scenario.ScenarioBuilder builder = scenario.toBuilder();
+            if (options.containsKey("gates")) {
+                builder.gates(Integer.parseInt(options.get("gates")));
+            }
+            if (options.containsKey("rate")) {
+                builder.ratePerGate(Double.parseDouble(options.get("rate")));
+            }
+            if (options.containsKey("duration")) {
+                builder.durationSeconds(Integer.parseInt(options.get("duration")));
+            }
+            if (options.containsKey("warmup")) {
+                builder.warmupSeconds(Integer.parseInt(options.get("warmup")));
+            }
+            if (options.containsKey("latency")) {
+                builder.latency(LatencyDistribution.parse(options.get("latency")));
+            }
+            if (options.containsKey("match-rate")) {
+                builder.matchRate(Double.parseDouble(options.get("match-rate")));
+            }
+            if (options.containsKey("failure-rate")) {
+                builder.failureRate(Double.parseDouble(options.get("failure-rate")));
+            }
+            scenarios.add(builder.build());
+        }
+        return scenarios;
+    }
+
+    private void start() throws IOException {
+        Path dataDir = Files.createTempDirectory("loadtest");
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driverClassName", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("server.port", "0");
+        properties.put("logging.level.root", "WARN");
+        properties.put("fingerprint.api.url", stub.url());
+        properties.put("fingerprint.matcher.store-dir", dataDir.resolve("templates").toString());
+        properties.put("fingerprint.journal.dir", dataDir.resolve("journal").toString());
+        properties.put("fingerprint.archive.dir", dataDir.resolve("archive").toString());
+        options.forEach((name, value) -> {
+            if (name.startsWith("spring.") || name.startsWith("server.")
+                    || name.startsWith("logging.") || name.startsWith("fingerprint.")) {
+                properties.put(name, value);
+            }
+        });
+
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        context = new SpringApplicationBuilder(FingerprintBackendApplication.class).run(args);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        accessLogWriter = context.getBean(AccessLogWriter.class);
+        recognizeUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + RECOGNIZE_PATH);
+        out.println("Application on " + recognizeUri + ", stub inference server on " + stub.url());
+    }
+
+    private void seed(int gates, int employees, double grantRate) {
+        LocalDateTime now = LocalDateTime.now();
+        segmentationModelId = context.getBean(FingerprintSegmentationModelRepository.class)
+                .save(FingerprintSegmentationModel.builder()
+                        .name("Stub segmentation").pathName(StubInferenceServer.SEGMENTATION_MODEL)
+                        .version("1.0").createdAt(now).updatedAt(now).build())
+                .getId();
+        FingerprintRecognitionModelRepository recognitionModels =
+                context.getBean(FingerprintRecognitionModelRepository.class);
+        // older, so the model with a gallery is the active one
+        remoteRecognitionModelId = recognitionModels.save(FingerprintRecognitionModel.builder()
+                        .name("Stub remote recognition").pathName(StubInferenceServer.REMOTE_RECOGNITION_MODEL)
+                        .version("1.0").createdAt(now.minusMinutes(1)).updatedAt(now.minusMinutes(1)).build())
+                .getId();
+        recognitionModels.save(FingerprintRecognitionModel.builder()
+                .name("Stub recognition").pathName(StubInferenceServer.RECOGNITION_MODEL)
+                .version("1.0").createdAt(now).updatedAt(now).build());
+
+        List<Area> areas = new ArrayList<>();
+        for (int i = 0; i < gates; i++) {
+            areas.add(Area.builder().id(gateId(i)).name("Gate " + i).securityLevel(1 + i % 5).build());
+        }
+        context.getBean(AreaRepository.class).saveAll(areas);
+
+        employeeIds = new ArrayList<>();
+        List<Employee> people = new ArrayList<>();
+        for (int i = 0; i < employees; i++) {
+            String id = String.format("LT-%05d", i);
+            employeeIds.add(id);
+            people.add(new Employee(id, "Load Test " + i, "0", "-", 5));
+        }
+        context.getBean(EmployeeRepository.class).saveAll(people);
+
+        Random random = new Random(42);
+        List<Map.Entry<String, String>> grants = new ArrayList<>();
+        for (String employeeId : employeeIds) {
+            for (Area area : areas) {
+                if (random.nextDouble() < grantRate) {
+                    grants.add(Map.entry(employeeId, area.getId()));
+                }
+            }
+        }
+        context.getBean(AreaAccessBulkService.class).grant(grants);
+        out.printf("Seeded %d gates, %d employees, %d grants%n", gates, employees, grants.size());
+    }
+
+    private Map<String, Object> run(Scenario scenario) throws Exception {
+        stub.configure(scenario.getLatency(), scenario.getMatchRate(), scenario.getFailureRate(), employeeIds);
+        Map<String, Object> stubBefore = stub.stats();
+        long accessLogsBefore = count("access_log");
+        long recognitionsBefore = count("recognition");
+        long batchesBefore = ((Number) accessLogWriter.stats().get("batches")).longValue();
+
+        Recorder recorder = new Recorder(3);
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<CompletableFuture<?>> pending = new ConcurrentLinkedQueue<>();
+
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(scenario.getWarmupSeconds());
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(scenario.getDurationSeconds());
+
+        List<Thread> gates = new ArrayList<>();
+        for (int gate = 0; gate < scenario.getGates(); gate++) {
+            String areaId = gateId(gate);
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long meanGapNanos = (long) (1e9 / scenario.getRatePerGate());
+                // stagger the gates so they do not all fire at startNanos
+                long next = startNanos + (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+                while (next < endNanos) {
+                    long wait;
+                    while ((wait = next - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    long scheduled = next;
+                    boolean measured = scheduled >= measureFromNanos;
+                    pending.add(send(areaId, scenario.isRemoteInference()).handle((response, error) -> {
+                        long micros = (System.nanoTime() - scheduled) / 1000;
+                        if (measured) {
+                            recorder.recordValue(micros);
+                            outcomes.computeIfAbsent(outcome(response, error),
+                                    key -> new LongAdder()).increment();
+                        }
+                        return null;
+                    }));
+                    next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+                }
+            }, "gate-" + gate);
+            thread.start();
+            gates.add(thread);
+        }
+        for (Thread thread : gates) {
+            thread.join();
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        long completedNanos = System.nanoTime();
+        awaitWriterDrained();
+        long drainedNanos = System.nanoTime();
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        double measuredSeconds = (completedNanos - measureFromNanos) / 1e9;
+        double writeSeconds = (drainedNanos - startNanos) / 1e9;
+        long accessLogs = count("access_log") - accessLogsBefore;
+        long recognitions = count("recognition") - recognitionsBefore;
+        long batches = ((Number) accessLogWriter.stats().get("batches")).longValue() - batchesBefore;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scenario", scenario.getName());
+        result.put("gates", scenario.getGates());
+        result.put("ratePerGate", scenario.getRatePerGate());
+        result.put("warmupSeconds", scenario.getWarmupSeconds());
+        result.put("durationSeconds", scenario.getDurationSeconds());
+        result.put("latencyDistribution", scenario.getLatency().toString());
+        result.put("matchRate", scenario.getMatchRate());
+        result.put("failureRate", scenario.getFailureRate());
+        result.put("inferencePath", scenario.isRemoteInference() ? "remote" : "local");
+
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("requests", histogram.getTotalCount());
+        throughput.put("offeredPerSecond", scenario.offeredRate());
+        throughput.put("completedPerSecond", histogram.getTotalCount() / measuredSeconds);
+        result.put("throughput", throughput);
+
+        Map<String, Long> outcomeCounts = new LinkedHashMap<>();
+        outcomes.forEach((outcome, count) -> outcomeCounts.put(outcome, count.sum()));
+        result.put("outcomes", outcomeCounts);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("meanMillis", histogram.getMean() / 1000.0);
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            latency.put("p" + (percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile)),
+                    histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        latency.put("maxMillis", histogram.getMaxValue() / 1000.0);
+        result.put("latency", latency);
+
+        Map<String, Object> writes = new LinkedHashMap<>();
+        writes.put("accessLogRows", accessLogs);
+        writes.put("recognitionRows", recognitions);
+        writes.put("accessLogRowsPerSecond", accessLogs / writeSeconds);
+        writes.put("recognitionRowsPerSecond", recognitions / writeSeconds);
+        writes.put("writerBatches", batches);
+        writes.put("drainMillis", (drainedNanos - completedNanos) / 1_000_000.0);
+        result.put("dbWrites", writes);
+
+        Map<String, Object> inference = new LinkedHashMap<>();
+        stub.stats().forEach((key, value) ->
+                inference.put(key, ((Number) value).longValue() - ((Number) stubBefore.get(key)).longValue()));
+        result.put("inference", inference);
+        return result;
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(String areaId, boolean remoteInference) {
+        byte[] body = remoteInference
+                ? multipart(areaId, segmentationModelId, remoteRecognitionModelId, scans.next())
+                : multipart(areaId, null, null, scans.next());
+        HttpRequest request = HttpRequest.newBuilder(recognizeUri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String outcome(HttpResponse<String> response, Throwable error) {
+        if (error != null) {
+            return "clientError";
+        }
+        switch (response.statusCode()) {
+            case 200:
+                try {
+                    JsonNode body = objectMapper.readTree(response.body());
+                    if (!body.path("matched").asBoolean()) {
+                        return "unmatched";
+                    }
+                    return body.path("authorized").asBoolean() ? "granted" : "denied";
+                } catch (IOException e) {
+                    return "unreadable";
+                }
+            case 429:
+                return "rejected";
+            case 503:
+                return "unavailable";
+            default:
+                return "http" + response.statusCode();
+        }
+    }
+
+    private void awaitWriterDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            Object queued = accessLogWriter.stats().get("queued");
+            if (queued == null || ((Number) queued).longValue() == 0) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        out.println("Access log writer still has queued events after " + DRAIN_TIMEOUT);
+    }
+
+    private long count(String table) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void print(Scenario scenario, Map<String, Object> result) {
+        Map<String, Object> throughput = (Map<String, Object>) result.get("throughput");
+        Map<String, Object> latency = (Map<String, Object>) result.get("latency");
+        Map<String, Object> writes = (Map<String, Object>) result.get("dbWrites");
+        out.printf("%n== %s: %d gates x %.1f scans/s for %ds (%s inference %s, match %.2f, failure %.2f)%n",
+                scenario.getName(), scenario.getGates(), scenario.getRatePerGate(), scenario.getDurationSeconds(),
+                result.get("inferencePath"), scenario.getLatency(), scenario.getMatchRate(), scenario.getFailureRate());
+        out.printf("  throughput   %d requests, %.1f/s offered, %.1f/s completed%n",
+                throughput.get("requests"), throughput.get("offeredPerSecond"), throughput.get("completedPerSecond"));
+        out.printf("  outcomes     %s%n", result.get("outcomes"));
+        out.printf("  latency ms   p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f  mean %.1f%n",
+                latency.get("p50"), latency.get("p90"), latency.get("p99"), latency.get("p99.9"),
+                latency.get("maxMillis"), latency.get("meanMillis"));
+        out.printf("  db writes    access_log %.1f rows/s, recognition %.1f rows/s, %d writer batches%n",
+                writes.get("accessLogRowsPerSecond"), writes.get("recognitionRowsPerSecond"), writes.get("writerBatches"));
+        out.printf("  inference    %s%n", result.get("inference"));
+    }
+
+    // without model ids the application uses its active pair
+    private static byte[] multipart(String areaId, String segmentationModelId, String recognitionModelId, byte[] image) {
+        StringBuilder head = new StringBuilder();
+        field(head, "area.id", areaId);
+        field(head, "accessType", "ENTRY");
+        if (recognitionModelId != null) {
+            field(head, "segmentationModel.id", segmentationModelId);
+            field(head, "recognitionModel.id", recognitionModelId);
+        }
+        head.append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"scan.png\"\r\n")
+                .append("Content-Type: image/png\r\n\r\n");
+        byte[] prefix = head.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        byte[] body = new byte[prefix.length + image.length + suffix.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        System.arraycopy(image, 0, body, prefix.length, image.length);
+        System.arraycopy(suffix, 0, body, prefix.length + image.length, suffix.length);
+        return body;
+    }
+
+    private static void field(StringBuilder body, String name, String value) {
+        body.append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n");
+    }
+
+    private static String gateId(int gate) {
+        return String.format("GATE-%03d", gate);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void close() {
+        if (context != null) {
+            context.close();
+        }
+        if (clientExecutor != null) {
+            clientExecutor.shutdownNow();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.fingerprint_backend.loadtest;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One traffic shape: {@code gates} gates each scanning at a Poisson rate of
+ * {@code ratePerGate} per second for {@code warmupSeconds + durationSeconds},
+ * against a stub whose inference latency, match rate and failure rate are set
+ * for the scenario. Only requests scheduled after the warm-up are measured.
+ * Scans are embedded by the stub and matched against the application's local
+ * gallery, unless {@code remoteInference} names the model without a gallery so
+ * every scan goes to the stub's {@code /api/recognize}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class Scenario {
+
+    private final String name;
+    private final int gates;
+    private final double ratePerGate;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final LatencyDistribution latency;
+    private final double matchRate;
+    private final double failureRate;
+    private final boolean remoteInference;
+
+    public double offeredRate() {
+        return gates * ratePerGate;
+    }
+
+    public static Map<String, Scenario> builtIn() {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        // a normal working hour
+        scenarios.put("steady", Scenario.builder()
+                .name("steady").gates(8).ratePerGate(2).warmupSeconds(5).durationSeconds(30)
+                .latency(LatencyDistribution.parse("lognormal:80:0.35")).matchRate(0.9).failureRate(0)
+                .build());
+        // the steady hour on a model whose gallery is not loaded: the remote recognize fallback
+        scenarios.put("remote-inference", Scenario.builder()
+                .name("remote-inference").gates(8).ratePerGate(2).warmupSeconds(5).durationSeconds(30)
+                .latency(LatencyDistribution.parse("lognormal:80:0.35")).matchRate(0.9).failureRate(0)
+                .remoteInference(true)
+                .build());
+        // every gate busy at once, close to the infer stage's capacity
+        scenarios.put("shift-change", Scenario.builder()
+                .name("shift-change").gates(32).ratePerGate(3).warmupSeconds(5).durationSeconds(30)
+                .latency(LatencyDistribution.parse("lognormal:120:0.5")).matchRate(0.95).failureRate(0)
+                .build());
+        // inference tier under load or on CPU
+        scenarios.put("slow-inference", Scenario.builder()
+                .name("slow-inference").gates(8).ratePerGate(2).warmupSeconds(5).durationSeconds(30)
+                .latency(LatencyDistribution.parse("lognormal:600:0.6")).matchRate(0.9).failureRate(0)
+                .build());
+        // failing inference calls trip the circuit breaker
+        scenarios.put("flaky-inference", Scenario.builder()
+                .name("flaky-inference").gates(8).ratePerGate(2).warmupSeconds(5).durationSeconds(30)
+                .latency(LatencyDistribution.parse("fixed:60")).matchRate(0.9).failureRate(0.3)
+                .build());
+        return scenarios;
+    }
+}
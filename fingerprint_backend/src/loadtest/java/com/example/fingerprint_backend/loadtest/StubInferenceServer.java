@@ -0,0 +1,339 @@
+package com.example.fingerprint_backend.loadtest;
+
+import com.example.fingerprint_backend.model.InferenceRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stands in for the Python AI backend on a local port. Every enrolled employee
+ * has a fixed random unit embedding under {@link #RECOGNITION_MODEL}; the
+ * {@link #REMOTE_RECOGNITION_MODEL} has no gallery, so the application sends its
+ * scans to {@code /api/recognize}. Serves the endpoints the recognition path calls:
+ * <ul>
+ *   <li>{@code GET /api/embeddings} - the gallery of the requested model, which
+ *       the application imports into its local matcher</li>
+ *   <li>{@code POST /api/embed}, {@code /api/embed-batch} and {@code /api/v2/embed}
+ *       - wait one latency per call, then return per image an enrolled
+ *       employee's embedding plus a little noise with probability
+ *       {@code matchRate}, or an unrelated random embedding otherwise</li>
+ *   <li>{@code POST /api/recognize} - waits a latency drawn from the configured
+ *       distribution, then answers with a match for a random enrolled employee
+ *       with probability {@code matchRate}, an unmatched result otherwise</li>
+ *   <li>{@code POST /api/v2/recognize} - the same per image of a CBOR
+ *       {@link InferenceRequest} frame, answered with a CBOR {@code results} list</li>
+ *   <li>{@code GET /api/models} - one segmentation and two recognition models</li>
+ *   <li>{@code POST /api/models/preload} - reports every requested pair resident</li>
+ * </ul>
+ * Inference calls fail with a 500 with probability {@code failureRate}. Each
+ * exchange runs on its own thread, so simulated latency does not queue other
+ * requests; the stub is never the bottleneck.
+ */
+public class StubInferenceServer implements AutoCloseable {
+
+    public static final String SEGMENTATION_MODEL = "stub_segmentation.pt";
+    public static final String RECOGNITION_MODEL = "stub_recognition.pt";
+    public static final String REMOTE_RECOGNITION_MODEL = "stub_recognition_remote.pt";
+    public static final int DIMENSION = 128;
+
+    // a rematch scores about 0.98 against its enrolled embedding, an unrelated one below 0.4
+    private static final double SCAN_NOISE = 0.015;
+    private static final byte[] FILES_PART = "name=\"files\"".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new CBORMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "stub-inference");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder recognitions = new LongAdder();
+    private final LongAdder embedCalls = new LongAdder();
+    private final LongAdder embeddings = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private volatile LatencyDistribution latency = LatencyDistribution.parse("fixed:0");
+    private volatile double matchRate = 1.0;
+    private volatile double failureRate = 0.0;
+    private volatile List<String> employeeIds = List.of();
+    private volatile Map<String, float[]> gallery = Map.of();
+
+    public StubInferenceServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+        server.setExecutor(executor);
+        server.createContext("/api/embeddings", this::embeddings);
+        server.createContext("/api/embed", this::embed);
+        server.createContext("/api/embed-batch", this::embedBatch);
+        server.createContext("/api/v2/embed", this::embedBinary);
+        server.createContext("/api/recognize", this::recognize);
+        server.createContext("/api/v2/recognize", this::recognizeBinary);
+        server.createContext("/api/models", this::models);
+        server.start();
+    }
+
+    public String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public void configure(LatencyDistribution latency, double matchRate, double failureRate, List<String> employeeIds) {
+        this.latency = latency;
+        this.matchRate = matchRate;
+        this.failureRate = failureRate;
+        this.employeeIds = List.copyOf(employeeIds);
+        Map<String, float[]> gallery = new LinkedHashMap<>();
+        for (String employeeId : employeeIds) {
+            // seeded by id, so every scenario sees the gallery the application imported
+            gallery.put(employeeId, randomUnitVector(new Random(employeeId.hashCode())));
+        }
+        this.gallery = gallery;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recognitions", recognitions.sum());
+        stats.put("embedCalls", embedCalls.sum());
+        stats.put("embeddings", embeddings.sum());
+        stats.put("matches", matches.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void embeddings(HttpExchange exchange) throws IOException {
+        drain(exchange.getRequestBody());
+        String query = exchange.getRequestURI().getQuery();
+        List<Map<String, Object>> entries = new ArrayList<>();
+        if (query != null && query.contains("recognition_model_path=" + RECOGNITION_MODEL)) {
+            gallery.forEach((employeeId, embedding) -> {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("employee_id", employeeId);
+                entry.put("embedding", embedding);
+                entries.add(entry);
+            });
+        }
+        respond(exchange, 200, Map.of("dimension", DIMENSION, "embeddings", entries));
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        drain(exchange.getRequestBody());
+        embedCalls.increment();
+        if (!infer()) {
+            respond(exchange, 500, Map.of("error", "Simulated inference failure"));
+            return;
+        }
+        respond(exchange, 200, Map.of("embedding", scanEmbedding()));
+    }
+
+    private void embedBatch(HttpExchange exchange) throws IOException {
+        int files = count(exchange.getRequestBody().readAllBytes(), FILES_PART);
+        embedCalls.increment();
+        if (!infer()) {
+            respond(exchange, 500, Map.of("error", "Simulated inference failure"));
+            return;
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            results.add(Map.of("embedding", scanEmbedding()));
+        }
+        respond(exchange, 200, Map.of("results", results));
+    }
+
+    private void embedBinary(HttpExchange exchange) throws IOException {
+        InferenceRequest request = cborMapper.readValue(exchange.getRequestBody(), InferenceRequest.class);
+        embedCalls.increment();
+        if (!infer()) {
+            respond(exchange, cborMapper, "application/cbor", 500, Map.of("error", "Simulated inference failure"));
+            return;
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < request.getImages().size(); i++) {
+            ByteBuffer packed = ByteBuffer.allocate(DIMENSION * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (float value : scanEmbedding()) {
+                packed.putFloat(value);
+            }
+            results.add(Map.of("embedding", packed.array()));
+        }
+        respond(exchange, cborMapper, "application/cbor", 200, Map.of("dimension", DIMENSION, "results", results));
+    }
+
+    // what the model would return for one scan: a noisy copy of an enrolled finger, or a stranger
+    private float[] scanEmbedding() {
+        embeddings.increment();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> employees = employeeIds;
+        if (employees.isEmpty() || random.nextDouble() >= matchRate) {
+            return randomUnitVector(random);
+        }
+        matches.increment();
+        float[] enrolled = gallery.get(employees.get(random.nextInt(employees.size())));
+        float[] scan = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            scan[i] = enrolled[i] + (float) (random.nextGaussian() * SCAN_NOISE);
+        }
+        return scan;
+    }
+
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private void recognize(HttpExchange exchange) throws IOException {
+        drain(exchange.getRequestBody());
+        recognitions.increment();
+        if (!infer()) {
+            respond(exchange, 500, Map.of("error", "Simulated inference failure"));
+            return;
+        }
+        respond(exchange, 200, Map.of("similarity", similarity()));
+    }
+
+    private void recognizeBinary(HttpExchange exchange) throws IOException {
+        InferenceRequest request = cborMapper.readValue(exchange.getRequestBody(), InferenceRequest.class);
+        recognitions.increment();
+        if (!infer()) {
+            respond(exchange, cborMapper, "application/cbor", 500, Map.of("error", "Simulated inference failure"));
+            return;
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < request.getImages().size(); i++) {
+            results.add(similarity());
+        }
+        respond(exchange, cborMapper, "application/cbor", 200, Map.of("results", results));
+    }
+
+    // sleeps for a sampled latency; false if this call should fail
+    private boolean infer() {
+        try {
+            Thread.sleep(Math.max(0, latency.sampleMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            failures.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private Map<String, Object> similarity() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> employees = employeeIds;
+        Map<String, Object> similarity = new LinkedHashMap<>();
+        if (!employees.isEmpty() && random.nextDouble() < matchRate) {
+            matches.increment();
+            String employeeId = employees.get(random.nextInt(employees.size()));
+            similarity.put("employee_id", employeeId);
+            similarity.put("fingerprint_id", employeeId + "_" + random.nextInt(10));
+            similarity.put("confidence", 0.86 + random.nextDouble() * 0.13);
+            similarity.put("match", true);
+        } else {
+            similarity.put("employee_id", null);
+            similarity.put("fingerprint_id", null);
+            similarity.put("confidence", random.nextDouble() * 0.6);
+            similarity.put("match", false);
+        }
+        return similarity;
+    }
+
+    private void models(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/api/models/preload")) {
+            Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+            Object models = request.get("models");
+            respond(exchange, 200, Map.of("resident", models == null ? List.of() : models, "failed", List.of()));
+        } else if (path.equals("/api/models")) {
+            drain(exchange.getRequestBody());
+            respond(exchange, 200, Map.of(
+                    "segmentation_models", List.of(model("Stub segmentation", SEGMENTATION_MODEL)),
+                    "recognition_models", List.of(model("Stub recognition", RECOGNITION_MODEL),
+                            model("Stub remote recognition", REMOTE_RECOGNITION_MODEL))));
+        } else {
+            drain(exchange.getRequestBody());
+            respond(exchange, 404, Map.of("error", "Not found: " + path));
+        }
+    }
+
+    private static Map<String, Object> model(String name, String pathName) {
+        Map<String, Object> model = new LinkedHashMap<>();
+        model.put("name", name);
+        model.put("path_name", pathName);
+        model.put("accuracy", 0.99);
+        model.put("valAccuracy", 0.98);
+        model.put("version", "1.0");
+        model.put("createdAt", "2024-01-01T00:00:00");
+        model.put("updatedAt", "2024-01-01T00:00:00");
+        return model;
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        respond(exchange, objectMapper, "application/json", status, body);
+    }
+
+    private static void respond(HttpExchange exchange, ObjectMapper mapper, String contentType, int status, Object body)
+            throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static int count(byte[] body, byte[] pattern) {
+        int count = 0;
+        outer:
+        for (int i = 0; i + pattern.length <= body.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (body[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) >= 0) {
+            // discard
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.fingerprint_backend.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Grayscale PNGs shaped like fingerprint scans (concentric ridges), so the
+ * backend decodes and downscales them as it would a real scan. Every
+ * {@link #next} is byte-unique, via a {@code tEXt} chunk holding a sequence
+ * number, so scans miss the recognition result cache the way distinct scans of
+ * the same finger would.
+ */
+public class SyntheticScans {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 480;
+
+    private final byte[][] templates;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SyntheticScans(int count, long seed) throws IOException {
+        Random random = new Random(seed);
+        templates = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            templates[i] = render(random);
+        }
+    }
+
+    public byte[] next() {
+        long n = sequence.getAndIncrement();
+        return withText(templates[(int) (n % templates.length)], "scan", Long.toString(n));
+    }
+
+    private static byte[] render(Random random) throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        double cx = WIDTH * (0.4 + 0.2 * random.nextDouble());
+        double cy = HEIGHT * (0.4 + 0.2 * random.nextDouble());
+        double period = 6 + 4 * random.nextDouble();
+        double warp = 0.5 + random.nextDouble();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double dx = x - cx;
+                double dy = (y - cy) * 0.8;
+                double r = Math.sqrt(dx * dx + dy * dy) + warp * 8 * Math.sin(Math.atan2(dy, dx) * 3);
+                int value = (int) (128 + 100 * Math.sin(2 * Math.PI * r / period) + random.nextInt(24) - 12);
+                image.getRaster().setSample(x, y, 0, Math.max(0, Math.min(255, value)));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    // inserts a tEXt chunk before the trailing 12-byte IEND chunk
+    private static byte[] withText(byte[] png, String keyword, String text) {
+        byte[] data = (keyword + '\0' + text).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] type = "tEXt".getBytes(StandardCharsets.ISO_8859_1);
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data);
+
+        int iend = png.length - 12;
+        ByteBuffer out = ByteBuffer.allocate(png.length + 12 + data.length);
+        out.put(png, 0, iend);
+        out.putInt(data.length).put(type).put(data).putInt((int) crc.getValue());
+        out.put(png, iend, 12);
+        return out.array();
+    }
+}
@@ -3,12 +3,14 @@ package com.example.fingerprint_backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.io.File;
 
 @SpringBootApplication
+@EnableScheduling
 public class FingerprintBackendApplication {
 
 //	public static void main(String[] args) {
@@ -39,6 +41,7 @@ public class FingerprintBackendApplication {
 						.allowedOrigins("*")
 						.allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
 						.allowedHeaders("*")
+						.exposedHeaders("X-Next-Cursor")
 						.maxAge(3600);
 			}
 		};
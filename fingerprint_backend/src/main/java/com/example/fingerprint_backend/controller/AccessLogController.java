@@ -4,13 +4,24 @@ import com.example.fingerprint_backend.model.AccessLog;
 import com.example.fingerprint_backend.model.Employee;
 import com.example.fingerprint_backend.repository.AccessLogRepository;
 import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.service.AccessLogArchiveService;
+import com.example.fingerprint_backend.service.AccessLogExportService;
+import com.example.fingerprint_backend.service.AccessLogWriter;
+import com.example.fingerprint_backend.util.KeysetCursor;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -18,30 +29,116 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AccessLogController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final AccessLogRepository accessLogRepository;
     private final EmployeeRepository employeeRepository;
+    private final AccessLogWriter accessLogWriter;
+    private final AccessLogArchiveService accessLogArchiveService;
+    private final AccessLogExportService accessLogExportService;
+
+    @Value("${fingerprint.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${fingerprint.page.max-size:1000}")
+    private int maxPageSize;
+
+    @GetMapping("/journal")
+    public Map<String, Object> getJournalStats() {
+        return accessLogWriter.stats();
+    }
 
+    @GetMapping("/archive")
+    public List<String> getArchivedMonths() throws IOException {
+        return accessLogArchiveService.archivedMonths();
+    }
+
+    @PostMapping("/archive")
+    public Map<String, Long> archiveExpired() throws IOException {
+        return accessLogArchiveService.archiveExpired();
+    }
 
+
+    /**
+     * One page of an employee's access logs in {@code (timestamp, id)} order.
+     * When more rows follow, the {@code X-Next-Cursor} header carries the
+     * cursor for the next page.
+     */
     @GetMapping("/by-employee/{employeeId}")
     public ResponseEntity<List<AccessLog>> getAccessLogsByEmployee(
             @PathVariable String employeeId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(required = false) String accessType,
-            @RequestParam(required = false) String areaId
-    ) {
+            @RequestParam(required = false) String areaId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) throws IOException {
         Optional<Employee> employee = employeeRepository.findById(employeeId);
         if (employee.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        List<AccessLog> accessLogs = accessLogRepository.findByEmployeeIdAndTimestampBetween(
+        KeysetCursor after;
+        try {
+            after = cursor != null ? KeysetCursor.parse(cursor) : new KeysetCursor(startDate, KeysetCursor.MIN_ID);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        // one row past the page tells whether another page follows
+        List<AccessLog> accessLogs = new ArrayList<>();
+        if (after.getTimestamp().isBefore(accessLogArchiveService.archiveHorizon())) {
+            accessLogs.addAll(accessLogArchiveService.findPageByEmployee(
+                    employeeId, after, endDate, accessType, areaId, pageSize + 1));
+        }
+        accessLogs.addAll(accessLogRepository.findPageByEmployee(
                 employeeId,
-                startDate,
+                after.getTimestamp(),
+                after.getId(),
                 endDate,
                 accessType,
-                areaId
-        );
-        return ResponseEntity.ok(accessLogs);
+                areaId,
+                Limit.of(pageSize + 1)
+        ));
+        accessLogs.sort((a, b) -> KeysetCursor.compare(a.getTimestamp(), a.getId(), b.getTimestamp(), b.getId()));
+
+        if (accessLogs.size() <= pageSize) {
+            return ResponseEntity.ok(accessLogs);
+        }
+        List<AccessLog> page = accessLogs.subList(0, pageSize);
+        AccessLog last = page.get(pageSize - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, new KeysetCursor(last.getTimestamp(), last.getId()).encode())
+                .body(page);
+    }
+
+    /**
+     * Streams the access logs in the range as NDJSON or CSV.
+     */
+    @GetMapping("/export")
+    public void exportAccessLogs(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String employeeId,
+            @RequestParam(required = false) String accessType,
+            @RequestParam(required = false) String areaId,
+            HttpServletResponse response
+    ) throws IOException {
+        AccessLogExportService.Format exportFormat;
+        try {
+            exportFormat = AccessLogExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported format: " + format);
+            return;
+        }
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"access-log." + exportFormat.getExtension() + "\"");
+        accessLogExportService.exportAccessLogs(exportFormat, startDate, endDate, employeeId, accessType, areaId,
+                response.getOutputStream());
     }
 }
@@ -0,0 +1,36 @@
+package com.example.fingerprint_backend.controller;
+
+import com.example.fingerprint_backend.service.AiBackendClient;
+import com.example.fingerprint_backend.service.ModelRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/ai-backend")
+@RequiredArgsConstructor
+public class AiBackendController {
+
+    private final AiBackendClient aiBackendClient;
+    private final ModelRegistry modelRegistry;
+
+    @GetMapping("/status")
+    public Map<String, Object> getStatus() {
+        return aiBackendClient.stats();
+    }
+
+    @GetMapping("/models")
+    public Map<String, Object> getModels() {
+        return modelRegistry.stats();
+    }
+
+    @PostMapping("/models/preload")
+    public Map<String, Object> preloadModels() {
+        modelRegistry.preload();
+        return modelRegistry.stats();
+    }
+}
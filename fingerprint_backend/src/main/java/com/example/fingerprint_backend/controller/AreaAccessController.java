@@ -1,19 +1,26 @@
 package com.example.fingerprint_backend.controller;
 
-import com.example.fingerprint_backend.model.Area;
 import com.example.fingerprint_backend.model.AreaAccess;
-import com.example.fingerprint_backend.model.Employee;
-import com.example.fingerprint_backend.repository.AreaRepository;
+import com.example.fingerprint_backend.model.BulkAccessRequest;
+import com.example.fingerprint_backend.model.BulkAccessResult;
 import com.example.fingerprint_backend.repository.AreaAccessRepository;
 import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.service.AreaAccessBulkService;
+import com.example.fingerprint_backend.service.AuthorizationMatrix;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/access")
@@ -25,7 +32,10 @@ public class AreaAccessController {
         private EmployeeRepository employeeRepository;
 
         @Autowired
-        private AreaRepository areaRepository;
+        private AuthorizationMatrix authorizationMatrix;
+
+        @Autowired
+        private AreaAccessBulkService areaAccessBulkService;
 
         @GetMapping("/by-employee/{employeeId}")
         public ResponseEntity<List<AreaAccess>> getAccessByEmployee(@PathVariable String employeeId) {
@@ -46,43 +56,74 @@ public class AreaAccessController {
                         .timestamp(LocalDateTime.now())
                         .build();
 
-                areaAccessRepository.save(accessPermission);
+                AreaAccess saved = areaAccessRepository.save(accessPermission);
+                authorizationMatrix.grant(saved.getEmployee().getId(), saved.getArea().getId());
 
                 return ResponseEntity.ok().build();
         }
 
         @PostMapping("/grant-all-areas/{employeeId}")
         public ResponseEntity<Void> grantAccessToAllAreas(@PathVariable("employeeId") String employeeId) {
-                Employee employee = employeeRepository.findById(employeeId)
-                        .orElseThrow(() -> new ResponseStatusException(
-                                HttpStatus.NOT_FOUND, "Employee not found with id: " + employeeId));
-
-                List<Area> areas = areaRepository.findAll();
-                for (Area area : areas) {
-                        boolean accessExists = areaAccessRepository.existsByEmployeeAndArea(employee, area);
-                        if (!accessExists) {
-                                AreaAccess accessPermission = AreaAccess.builder()
-                                        .employee(employee)
-                                        .area(area)
-                                        .timestamp(LocalDateTime.now())
-                                        .build();
-                                areaAccessRepository.save(accessPermission);
-                        }
+                if (!employeeRepository.existsById(employeeId)) {
+                        throw new ResponseStatusException(
+                                HttpStatus.NOT_FOUND, "Employee not found with id: " + employeeId);
                 }
 
+                areaAccessBulkService.grant(areaAccessBulkService.crossProduct(List.of(employeeId), null));
+
                 return ResponseEntity.ok().build();
         }
 
+        @PostMapping("/bulk/grant")
+        public ResponseEntity<BulkAccessResult> bulkGrant(@RequestBody BulkAccessRequest request) {
+                return ResponseEntity.ok(areaAccessBulkService.grant(pairs(request)));
+        }
+
+        @PostMapping("/bulk/revoke")
+        public ResponseEntity<BulkAccessResult> bulkRevoke(@RequestBody BulkAccessRequest request) {
+                return ResponseEntity.ok(areaAccessBulkService.revoke(pairs(request)));
+        }
 
-        @DeleteMapping("/revoke/{accessId}")
-        public ResponseEntity<Void> revokeAccess(@PathVariable String accessId) {
-                if (!areaAccessRepository.existsById(accessId)) {
-                        throw new ResponseStatusException(
-                                        HttpStatus.NOT_FOUND, "Access permission not found with id: " + accessId);
+        @PostMapping(value = "/bulk/grant/csv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+        public ResponseEntity<BulkAccessResult> bulkGrantCsv(@RequestParam("file") MultipartFile file) throws IOException {
+                return ResponseEntity.ok(areaAccessBulkService.grant(csvPairs(file)));
+        }
+
+        @PostMapping(value = "/bulk/revoke/csv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+        public ResponseEntity<BulkAccessResult> bulkRevokeCsv(@RequestParam("file") MultipartFile file) throws IOException {
+                return ResponseEntity.ok(areaAccessBulkService.revoke(csvPairs(file)));
+        }
+
+        private List<Map.Entry<String, String>> pairs(BulkAccessRequest request) {
+                if (request.getEmployeeIds() == null || request.getEmployeeIds().isEmpty()) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "employeeIds is required");
+                }
+                return areaAccessBulkService.crossProduct(request.getEmployeeIds(), request.getAreaIds());
+        }
+
+        private List<Map.Entry<String, String>> csvPairs(MultipartFile file) throws IOException {
+                try (InputStream in = file.getInputStream()) {
+                        return areaAccessBulkService.parseCsv(in);
+                } catch (IllegalArgumentException e) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
                 }
+        }
+
+
+        @DeleteMapping("/revoke/{accessId}")
+        public ResponseEntity<Void> revokeAccess(@PathVariable UUID accessId) {
+                AreaAccess access = areaAccessRepository.findById(accessId)
+                        .orElseThrow(() -> new ResponseStatusException(
+                                        HttpStatus.NOT_FOUND, "Access permission not found with id: " + accessId));
 
                 areaAccessRepository.deleteById(accessId);
 
+                String employeeId = access.getEmployee().getId();
+                String areaId = access.getArea().getId();
+                if (!areaAccessRepository.existsByEmployeeIdAndAreaId(employeeId, areaId)) {
+                        authorizationMatrix.revoke(employeeId, areaId);
+                }
+
                 return ResponseEntity.ok().build();
         }
 
@@ -3,11 +3,13 @@ package com.example.fingerprint_backend.controller;
 import com.example.fingerprint_backend.model.EmployeeStatistics;
 import com.example.fingerprint_backend.model.Employee;
 import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.service.AttendanceRollupService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +20,7 @@ import java.util.Optional;
 public class EmployeeController {
 
     private final EmployeeRepository employeeRepository;
+    private final AttendanceRollupService attendanceRollupService;
 
 
     @GetMapping
@@ -36,9 +39,9 @@ public class EmployeeController {
     @GetMapping("/statistics")
     public ResponseEntity<List<EmployeeStatistics>> getEmployeeStatistics(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) throws IOException {
 
-        List<EmployeeStatistics> statistics = employeeRepository.getEmployeeStatisticsByDateRange(startDate, endDate);
+        List<EmployeeStatistics> statistics = attendanceRollupService.getEmployeeStatistics(startDate, endDate);
         return ResponseEntity.ok(statistics);
     }
 
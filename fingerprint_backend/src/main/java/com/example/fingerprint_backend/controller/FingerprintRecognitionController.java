@@ -1,33 +1,95 @@
 package com.example.fingerprint_backend.controller;
 
 import com.example.fingerprint_backend.model.*;
+import com.example.fingerprint_backend.service.AiBackendUnavailableException;
 import com.example.fingerprint_backend.service.FingerprintRecognitionService;
+import com.example.fingerprint_backend.service.RecognitionAdmissionService;
+import com.example.fingerprint_backend.service.RecognitionResultCache;
+import com.example.fingerprint_backend.service.ReferenceDataCache;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/fingerprint-recognition")
 @RequiredArgsConstructor
 public class FingerprintRecognitionController {
     private final FingerprintRecognitionService recognitionService;
+    private final RecognitionAdmissionService admissionService;
+    private final RecognitionResultCache resultCache;
+    private final ReferenceDataCache referenceDataCache;
 
     @PostMapping(value = "/recognize", consumes = "multipart/form-data")
-    public ResponseEntity<?> recognizeFingerprint(
+    public CompletableFuture<ResponseEntity<?>> recognizeFingerprint(
             @ModelAttribute RecognitionRequest recognitionRequest) {
+        // per-area admission is keyed by the area, so only known areas get a quota
+        String areaId = recognitionRequest.getArea() == null ? null : recognitionRequest.getArea().getId();
+        Area area = areaId == null ? null : referenceDataCache.findArea(areaId).orElse(null);
+        if (area == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", areaId == null ? "area.id is required" : "Area not found: " + areaId)));
+        }
+
+        CompletableFuture<RecognitionResponse> result;
         try {
+            result = admissionService.submit(area,
+                    () -> recognitionService.processRecognition(recognitionRequest));
+        } catch (RejectedExecutionException e) {
+            int retryAfter = admissionService.getRetryAfterSeconds();
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                    .body(Map.of("error", e.getMessage(), "retryAfterSeconds", retryAfter)));
+        }
+
+        return result.handle((response, e) -> {
+            if (e == null) {
+                return ResponseEntity.ok(response);
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RejectedExecutionException) {
+                int retryAfter = admissionService.getRetryAfterSeconds();
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                        .body(Map.of("error", cause.getMessage(), "retryAfterSeconds", retryAfter));
+            }
+            if (cause instanceof AiBackendUnavailableException unavailable) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(unavailable.getRetryAfterSeconds()))
+                        .body(Map.of("error", unavailable.getMessage(),
+                                "retryAfterSeconds", unavailable.getRetryAfterSeconds()));
+            }
+            log.error("Recognition failed", cause);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "An unexpected error occurred: " + cause.getMessage()));
+        });
+    }
 
-            RecognitionResponse result = recognitionService.processRecognition(recognitionRequest);
+    @GetMapping("/admission")
+    public Map<String, Object> getAdmissionStats() {
+        return admissionService.stats();
+    }
 
-            return ResponseEntity.ok(result);
+    @GetMapping("/pipeline")
+    public Map<String, Object> getPipelineStats() {
+        return recognitionService.pipelineStats();
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "An unexpected error occurred: " + e.getMessage()));
-        }
+    @GetMapping("/cache")
+    public Map<String, Object> getCacheStats() {
+        return resultCache.stats();
+    }
+
+    @GetMapping("/reference-cache")
+    public Map<String, Object> getReferenceCacheStats() {
+        return referenceDataCache.stats();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.example.fingerprint_backend.controller;
+
+import com.example.fingerprint_backend.model.EnrollmentRequest;
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.repository.FingerprintRecognitionModelRepository;
+import com.example.fingerprint_backend.service.EmbeddingBatcher;
+import com.example.fingerprint_backend.service.EmbeddingGalleryService;
+import com.example.fingerprint_backend.service.FingerprintRecognitionService;
+import com.example.fingerprint_backend.service.ReferenceDataCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/matcher")
+@RequiredArgsConstructor
+public class MatcherController {
+
+    private final EmbeddingGalleryService embeddingGalleryService;
+    private final FingerprintRecognitionService recognitionService;
+    private final EmbeddingBatcher embeddingBatcher;
+    private final FingerprintRecognitionModelRepository recognitionModelRepository;
+    private final ReferenceDataCache referenceDataCache;
+
+    @GetMapping("/status")
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("partitions", embeddingGalleryService.stats());
+        status.put("batching", embeddingBatcher.stats());
+        return status;
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload(@RequestParam String recognitionModelId) {
+        FingerprintRecognitionModel model = recognitionModelRepository.findById(recognitionModelId).orElse(null);
+        if (model == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Recognition model not found: " + recognitionModelId));
+        }
+        try {
+            int size = embeddingGalleryService.reload(model);
+            return ResponseEntity.ok(Map.of("size", size));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                    .body(Map.of("error", "Failed to reload embedding gallery: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping(value = "/enroll", consumes = "multipart/form-data")
+    public ResponseEntity<?> enroll(@ModelAttribute EnrollmentRequest request) {
+        if (request.getEmployeeId() == null || request.getFile() == null
+                || request.getSegmentationModel() == null || request.getSegmentationModel().getId() == null
+                || request.getRecognitionModel() == null || request.getRecognitionModel().getId() == null) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "employeeId, file, segmentationModel.id and recognitionModel.id are required"));
+        }
+        // resolved by id, as scans are, so the template lands in the partition that scans search
+        FingerprintSegmentationModel segmentationModel = referenceDataCache
+                .findSegmentationModel(request.getSegmentationModel().getId()).orElse(null);
+        if (segmentationModel == null) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Segmentation model not found: " + request.getSegmentationModel().getId()));
+        }
+        FingerprintRecognitionModel recognitionModel = referenceDataCache
+                .findRecognitionModel(request.getRecognitionModel().getId()).orElse(null);
+        if (recognitionModel == null) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Recognition model not found: " + request.getRecognitionModel().getId()));
+        }
+        try {
+            float[] embedding = recognitionService.embedFingerprint(
+                    request.getFile(), segmentationModel, recognitionModel);
+            embeddingGalleryService.enroll(recognitionModel,
+                    request.getEmployeeId(), request.getFingerprintId(), embedding);
+            return ResponseEntity.ok(Map.of("enrolled", true));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Failed to enroll a fingerprint for employee {}", request.getEmployeeId(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to enroll fingerprint: " + e.getMessage()));
+        }
+    }
+}
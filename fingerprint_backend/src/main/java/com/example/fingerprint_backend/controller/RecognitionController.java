@@ -2,12 +2,22 @@ package com.example.fingerprint_backend.controller;
 
 import com.example.fingerprint_backend.model.Recognition;
 import com.example.fingerprint_backend.repository.RecognitionRepository;
+import com.example.fingerprint_backend.service.AccessLogExportService;
+import com.example.fingerprint_backend.util.KeysetCursor;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/recognition")
@@ -15,14 +25,71 @@ import java.util.Optional;
 public class RecognitionController {
 
     private final RecognitionRepository recognitionRepository;
+    private final AccessLogExportService accessLogExportService;
 
+    @Value("${fingerprint.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${fingerprint.page.max-size:1000}")
+    private int maxPageSize;
+
+    /**
+     * One page of recognitions in {@code (timestamp, id)} order; see
+     * {@link AccessLogController#getAccessLogsByEmployee} for the cursor.
+     */
     @GetMapping
-    public List<Recognition> getAllRecognitions() {
-        return recognitionRepository.findAll();
+    public ResponseEntity<List<Recognition>> getAllRecognitions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<Recognition> recognitions;
+        try {
+            if (cursor == null) {
+                recognitions = recognitionRepository.findFirstPage(Limit.of(pageSize + 1));
+            } else {
+                KeysetCursor after = KeysetCursor.parse(cursor);
+                recognitions = recognitionRepository.findPageAfter(after.getTimestamp(), after.getId(), Limit.of(pageSize + 1));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (recognitions.size() <= pageSize) {
+            return ResponseEntity.ok(recognitions);
+        }
+        List<Recognition> page = recognitions.subList(0, pageSize);
+        Recognition last = page.get(pageSize - 1);
+        return ResponseEntity.ok()
+                .header(AccessLogController.NEXT_CURSOR_HEADER, new KeysetCursor(last.getTimestamp(), last.getId()).encode())
+                .body(page);
+    }
+
+    /**
+     * Streams the recognitions in the range as NDJSON or CSV.
+     */
+    @GetMapping("/export")
+    public void exportRecognitions(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            HttpServletResponse response
+    ) throws IOException {
+        AccessLogExportService.Format exportFormat;
+        try {
+            exportFormat = AccessLogExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported format: " + format);
+            return;
+        }
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"recognition." + exportFormat.getExtension() + "\"");
+        accessLogExportService.exportRecognitions(exportFormat, startDate, endDate, response.getOutputStream());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Recognition> getRecognitionById(@PathVariable String id) {
+    public ResponseEntity<Recognition> getRecognitionById(@PathVariable UUID id) {
         Optional<Recognition> recognition = recognitionRepository.findById(id);
         return recognition.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
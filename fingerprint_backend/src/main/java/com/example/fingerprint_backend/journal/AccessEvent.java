@@ -0,0 +1,114 @@
+package com.example.fingerprint_backend.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * One gate decision: the {@code AccessLog} row and its {@code Recognition} row,
+ * flattened to the column values the write-behind writer inserts.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccessEvent {
+    private UUID accessLogId;
+    private String areaId;
+    private String employeeId;
+    private LocalDateTime timestamp;
+    private boolean authorized;
+    private String accessType;
+
+    // null when no Recognition row is written
+    private UUID recognitionId;
+    private String segmentationModelId;
+    private String recognitionModelId;
+    private float confidence;
+
+    byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize());
+        putUuid(buffer, accessLogId);
+        putString(buffer, areaId);
+        putString(buffer, employeeId);
+        buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(timestamp.getNano());
+        buffer.put((byte) (authorized ? 1 : 0));
+        putString(buffer, accessType);
+        putUuid(buffer, recognitionId);
+        putString(buffer, segmentationModelId);
+        putString(buffer, recognitionModelId);
+        buffer.putFloat(confidence);
+        return buffer.array();
+    }
+
+    static AccessEvent decode(ByteBuffer buffer) {
+        AccessEvent event = new AccessEvent();
+        event.accessLogId = getUuid(buffer);
+        event.areaId = getString(buffer);
+        event.employeeId = getString(buffer);
+        long seconds = buffer.getLong();
+        event.timestamp = LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC);
+        event.authorized = buffer.get() != 0;
+        event.accessType = getString(buffer);
+        event.recognitionId = getUuid(buffer);
+        event.segmentationModelId = getString(buffer);
+        event.recognitionModelId = getString(buffer);
+        event.confidence = buffer.getFloat();
+        return event;
+    }
+
+    private int encodedSize() {
+        return uuidSize(accessLogId) + stringSize(areaId) + stringSize(employeeId)
+                + Long.BYTES + Integer.BYTES + 1 + stringSize(accessType)
+                + uuidSize(recognitionId) + stringSize(segmentationModelId) + stringSize(recognitionModelId)
+                + Float.BYTES;
+    }
+
+    private static int uuidSize(UUID value) {
+        return 1 + (value == null ? 0 : 2 * Long.BYTES);
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID value) {
+        buffer.put((byte) (value == null ? 0 : 1));
+        if (value != null) {
+            buffer.putLong(value.getMostSignificantBits());
+            buffer.putLong(value.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return buffer.get() == 0 ? null : new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static int stringSize(String value) {
+        return Short.BYTES + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.fingerprint_backend.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of {@link AccessEvent}s in fixed-size, memory-mapped
+ * segment files ({@code access-<n>.journal}). Each record is
+ * {@code [int length][int crc32][payload]}; a zero length marks the end of the
+ * written part of a segment, and a record whose checksum does not match is
+ * treated as a torn write and ends the segment as well.
+ * <p>
+ * The {@code CHECKPOINT} file holds the position up to which events are known
+ * to be in the database. It is replaced atomically, and segments entirely
+ * before it are deleted. After a crash, {@link #uncommitted()} returns every
+ * event written after the checkpoint.
+ */
+public class AccessEventJournal implements Closeable {
+
+    private static final int MAGIC = 0x46504a4c;
+    private static final int VERSION = 2;
+    private static final int SEGMENT_HEADER = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final String CHECKPOINT = "CHECKPOINT";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean syncWrites;
+
+    private Position checkpoint;
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    private AccessEventJournal(Path directory, int segmentBytes, boolean syncWrites) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncWrites = syncWrites;
+    }
+
+    public static AccessEventJournal open(Path directory, int segmentBytes, boolean syncWrites) throws IOException {
+        Files.createDirectories(directory);
+        AccessEventJournal journal = new AccessEventJournal(directory, segmentBytes, syncWrites);
+        journal.checkpoint = journal.readCheckpoint();
+
+        List<Long> segments = journal.segments();
+        long last = segments.isEmpty() ? journal.checkpoint.segment : segments.get(segments.size() - 1);
+        journal.openSegment(Math.max(last, journal.checkpoint.segment));
+        return journal;
+    }
+
+    /**
+     * Appends the event and returns the position just after it.
+     */
+    public synchronized Position append(AccessEvent event) throws IOException {
+        byte[] payload = event.encode();
+        int recordSize = RECORD_HEADER + payload.length;
+        if (recordSize > segmentBytes - SEGMENT_HEADER) {
+            throw new IOException("Access event of " + payload.length + " bytes does not fit in a journal segment");
+        }
+        if (buffer.position() + recordSize > segmentBytes) {
+            buffer.force();
+            channel.close();
+            openSegment(segment + 1);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int start = buffer.position();
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.position(start + RECORD_HEADER);
+        buffer.put(payload);
+        // the length goes in last so a torn record is never mistaken for a complete one
+        buffer.putInt(start, payload.length);
+        if (syncWrites) {
+            buffer.force(start, recordSize);
+        }
+        return new Position(segment, buffer.position());
+    }
+
+    /**
+     * Events appended after the checkpoint, in order.
+     */
+    public synchronized List<Entry> uncommitted() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (long number : segments()) {
+            if (number < checkpoint.segment) {
+                continue;
+            }
+            ByteBuffer data = number == segment ? buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN) : map(number);
+            int offset = number == checkpoint.segment ? (int) checkpoint.offset : SEGMENT_HEADER;
+            int end = number == segment ? buffer.position() : data.limit();
+            data.position(offset);
+            while (data.position() + RECORD_HEADER <= end) {
+                int length = data.getInt(data.position());
+                if (length <= 0 || data.position() + RECORD_HEADER + length > end) {
+                    break;
+                }
+                data.position(data.position() + RECORD_HEADER);
+                ByteBuffer payload = data.slice().limit(length);
+                entries.add(new Entry(AccessEvent.decode(payload), new Position(number, data.position() + length)));
+                data.position(data.position() + length);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Records that every event up to {@code position} is in the database and
+     * drops the segments that are no longer needed.
+     */
+    public synchronized void commit(Position position) throws IOException {
+        if (position.compareTo(checkpoint) <= 0) {
+            return;
+        }
+        Path tmp = directory.resolve(CHECKPOINT + ".tmp");
+        ByteBuffer data = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(MAGIC).putInt(VERSION).putLong(position.segment).putLong(position.offset).flip();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(data);
+            out.force(false);
+        }
+        Files.move(tmp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = position;
+
+        for (long number : segments()) {
+            if (number < position.segment) {
+                Files.deleteIfExists(segmentFile(number));
+            }
+        }
+    }
+
+    /**
+     * Bytes written but not yet committed, an approximation of the writer's backlog.
+     */
+    public synchronized long uncommittedBytes() {
+        if (checkpoint.segment == segment) {
+            return Math.max(0, buffer.position() - checkpoint.offset);
+        }
+        return (segment - checkpoint.segment) * (long) segmentBytes + buffer.position() - checkpoint.offset;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        Path file = segmentFile(number);
+        boolean created = !Files.exists(file);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        segment = number;
+
+        if (!created && buffer.getInt(0) == MAGIC && buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported journal segment version " + buffer.getInt(4) + ": " + file);
+        }
+        if (created || buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.position(SEGMENT_HEADER);
+            buffer.force();
+            return;
+        }
+
+        // find the end of the last complete record
+        int position = SEGMENT_HEADER;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER + length > segmentBytes) {
+                break;
+            }
+            ByteBuffer payload = buffer.duplicate().position(position + RECORD_HEADER).limit(position + RECORD_HEADER + length);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            position += RECORD_HEADER + length;
+        }
+        // clear a torn tail so later appends are not read past
+        for (int i = position; i < Math.min(segmentBytes, position + RECORD_HEADER); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.position(position);
+    }
+
+    private ByteBuffer map(long number) throws IOException {
+        try (FileChannel in = FileChannel.open(segmentFile(number), StandardOpenOption.READ)) {
+            return in.map(FileChannel.MapMode.READ_ONLY, 0, in.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private Position readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            List<Long> segments = segments();
+            return new Position(segments.isEmpty() ? 0 : segments.get(0), SEGMENT_HEADER);
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.remaining() < 24 || data.getInt() != MAGIC || data.getInt() != VERSION) {
+            throw new IOException("Corrupt journal checkpoint: " + file);
+        }
+        return new Position(data.getLong(), data.getLong());
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("access-") && name.endsWith(".journal"))
+                    .map(name -> Long.parseLong(name.substring("access-".length(), name.length() - ".journal".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve(String.format("access-%012d.journal", number));
+    }
+
+    public static final class Position implements Comparable<Position> {
+        private final long segment;
+        private final long offset;
+
+        public Position(long segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            return segment != other.segment
+                    ? Long.compare(segment, other.segment)
+                    : Long.compare(offset, other.offset);
+        }
+
+        @Override
+        public String toString() {
+            return segment + ":" + offset;
+        }
+    }
+
+    public static final class Entry {
+        private final AccessEvent event;
+        private final Position position;
+
+        public Entry(AccessEvent event, Position position) {
+            this.event = event;
+            this.position = position;
+        }
+
+        public AccessEvent getEvent() {
+            return event;
+        }
+
+        public Position getPosition() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.fingerprint_backend.matcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Exact cosine-similarity index over enrolled fingerprint embeddings.
+ * <p>
+ * Vectors are L2-normalized once when they are added and stored row-major in a
+ * single off-heap float matrix, so a search is a plain dot-product scan with no
+ * per-request allocation proportional to the gallery size. Large galleries are
+ * scanned in parallel chunks on a {@link ForkJoinPool}.
+ * <p>
+ * An index is either a view over a {@link TemplateStore} generation, in which
+ * case rows are read straight from the memory-mapped record file and new rows
+ * are written through to the store, or held only in memory in a direct buffer
+ * it owns, as in benchmarks and tests.
+ * <p>
+ * The index is append-only and safe for concurrent readers while a single
+ * writer adds rows.
+ */
+public class EmbeddingIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int PARALLEL_CHUNK_ROWS = 4096;
+
+    private final int dimension;
+    private final ForkJoinPool pool;
+    private final TemplateStore.Generation generation;
+    private final int rowStride;
+    private final int vectorOffset;
+
+    private FloatBuffer matrix;
+    private String[] employeeIds;
+    private String[] fingerprintIds;
+    private volatile int size;
+
+    public EmbeddingIndex(int dimension) {
+        this(dimension, INITIAL_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    public EmbeddingIndex(int dimension, int initialCapacity, ForkJoinPool pool) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Embedding dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+        this.pool = pool;
+        this.generation = null;
+        this.rowStride = dimension;
+        this.vectorOffset = 0;
+        int capacity = Math.max(1, initialCapacity);
+        this.matrix = allocate(capacity, dimension);
+        this.employeeIds = new String[capacity];
+        this.fingerprintIds = new String[capacity];
+    }
+
+    EmbeddingIndex(TemplateStore.Generation generation) {
+        this.dimension = generation.dimension();
+        this.pool = ForkJoinPool.commonPool();
+        this.generation = generation;
+        this.rowStride = generation.rowStrideFloats();
+        this.vectorOffset = generation.vectorOffsetFloats();
+        this.matrix = generation.floats();
+        int rows = generation.count();
+        int capacity = Math.max(INITIAL_CAPACITY, rows * 2);
+        this.employeeIds = new String[capacity];
+        this.fingerprintIds = new String[capacity];
+        for (int row = 0; row < rows; row++) {
+            employeeIds[row] = generation.employeeId(row);
+            fingerprintIds[row] = generation.fingerprintId(row);
+        }
+        this.size = rows;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public synchronized int add(String employeeId, String fingerprintId, float[] embedding) {
+        if (embedding.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Expected embedding of dimension " + dimension + " but got " + embedding.length);
+        }
+        float[] normalized = normalize(embedding);
+        int row = size;
+        if (row == employeeIds.length) {
+            employeeIds = Arrays.copyOf(employeeIds, row * 2);
+            fingerprintIds = Arrays.copyOf(fingerprintIds, row * 2);
+        }
+
+        if (generation != null) {
+            try {
+                generation.append(employeeId, fingerprintId, normalized);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append template for employee " + employeeId, e);
+            }
+            matrix = generation.floats();
+        } else {
+            if (row * rowStride >= matrix.capacity()) {
+                growMatrix(row * 2);
+            }
+            matrix.put(row * rowStride, normalized);
+        }
+        employeeIds[row] = employeeId;
+        fingerprintIds[row] = fingerprintId;
+
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Returns the {@code k} rows most similar to {@code probe}, best first.
+     * The probe does not need to be normalized.
+     */
+    public List<MatchCandidate> search(float[] probe, int k) {
+        TopK topK = scanAll(probe, k);
+        return topK == null ? List.of() : topK.toCandidates();
+    }
+
+    /**
+     * Same as {@link #search} but returns row numbers, best first.
+     */
+    int[] searchRows(float[] probe, int k) {
+        TopK topK = scanAll(probe, k);
+        return topK == null ? new int[0] : topK.sortedRows();
+    }
+
+    public float[] vector(int row) {
+        checkRow(row);
+        float[] out = new float[dimension];
+        matrix.get(row * rowStride + vectorOffset, out, 0, dimension);
+        return out;
+    }
+
+    public String employeeId(int row) {
+        checkRow(row);
+        return employeeIds[row];
+    }
+
+    public String fingerprintId(int row) {
+        checkRow(row);
+        return fingerprintIds[row];
+    }
+
+    /**
+     * Cosine similarity between a normalized query and a stored row.
+     */
+    public float similarity(float[] normalizedQuery, int row) {
+        return dotRow(matrix, row * rowStride + vectorOffset, normalizedQuery, dimension);
+    }
+
+    public static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, vector));
+        float[] out = new float[vector.length];
+        if (norm > 0f) {
+            float scale = 1f / norm;
+            for (int i = 0; i < vector.length; i++) {
+                out[i] = vector[i] * scale;
+            }
+        }
+        return out;
+    }
+
+    private TopK scanAll(float[] probe, int k) {
+        if (probe.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Expected probe of dimension " + dimension + " but got " + probe.length);
+        }
+        int rows = size;
+        if (rows == 0 || k <= 0) {
+            return null;
+        }
+
+        float[] query = normalize(probe);
+        if (rows <= PARALLEL_CHUNK_ROWS) {
+            return scan(query, Math.min(k, rows), 0, rows);
+        }
+        return pool.invoke(new ScanTask(query, Math.min(k, rows), 0, rows));
+    }
+
+    private TopK scan(float[] query, int k, int from, int to) {
+        FloatBuffer m = matrix;
+        TopK topK = new TopK(k);
+        // Bulk-copy a row at a time into a heap scratch array: one bounds check
+        // per row instead of one per element, and the dot loop stays on arrays.
+        float[] row = new float[dimension];
+        for (int r = from; r < to; r++) {
+            m.get(r * rowStride + vectorOffset, row, 0, dimension);
+            topK.offer(r, dot(row, query));
+        }
+        return topK;
+    }
+
+    private void growMatrix(int capacity) {
+        FloatBuffer next = allocate(capacity, dimension);
+        FloatBuffer current = matrix.duplicate();
+        current.clear().limit(size * dimension);
+        next.put(current).clear();
+        matrix = next;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for index of size " + size);
+        }
+    }
+
+    private static FloatBuffer allocate(int rows, int dimension) {
+        return ByteBuffer.allocateDirect(rows * dimension * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    static float dotRow(FloatBuffer m, int offset, float[] q, int dimension) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = dimension & ~3;
+        for (; i < bound; i += 4) {
+            s0 += m.get(offset + i) * q[i];
+            s1 += m.get(offset + i + 1) * q[i + 1];
+            s2 += m.get(offset + i + 2) * q[i + 2];
+            s3 += m.get(offset + i + 3) * q[i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += m.get(offset + i) * q[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float dot(float[] a, float[] b) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = a.length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private final class ScanTask extends RecursiveTask<TopK> {
+        private final float[] query;
+        private final int k;
+        private final int from;
+        private final int to;
+
+        private ScanTask(float[] query, int k, int from, int to) {
+            this.query = query;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= PARALLEL_CHUNK_ROWS) {
+                return scan(query, k, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(query, k, from, mid);
+            left.fork();
+            TopK right = new ScanTask(query, k, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Bounded min-heap of (row, score) pairs backed by primitive arrays.
+     */
+    private final class TopK {
+        private final int[] rows;
+        private final float[] scores;
+        private int count;
+
+        private TopK(int k) {
+            this.rows = new int[k];
+            this.scores = new float[k];
+        }
+
+        void offer(int row, float score) {
+            if (count < rows.length) {
+                rows[count] = row;
+                scores[count] = score;
+                siftUp(count++);
+            } else if (score > scores[0]) {
+                rows[0] = row;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        TopK merge(TopK other) {
+            for (int i = 0; i < other.count; i++) {
+                offer(other.rows[i], other.scores[i]);
+            }
+            return this;
+        }
+
+        List<MatchCandidate> toCandidates() {
+            List<MatchCandidate> candidates = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                candidates.add(new MatchCandidate(employeeIds[rows[i]], fingerprintIds[rows[i]], scores[i]));
+            }
+            candidates.sort(Comparator.comparingDouble(MatchCandidate::getScore).reversed());
+            return candidates;
+        }
+
+        int[] sortedRows() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+            int[] sorted = new int[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = rows[order[i]];
+            }
+            return sorted;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= scores[i]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int smallest = i;
+                if (left < count && scores[left] < scores[smallest]) {
+                    smallest = left;
+                }
+                if (left + 1 < count && scores[left + 1] < scores[smallest]) {
+                    smallest = left + 1;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int row = rows[a];
+            rows[a] = rows[b];
+            rows[b] = row;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.fingerprint_backend.matcher;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Brute-force matcher: scans every enrolled embedding, so recall is always 1.
+ */
+public class ExactScanMatcher implements FingerprintMatcher {
+
+    public static final String TYPE = "exact";
+
+    private final EmbeddingIndex index;
+    private final LatencyRecorder latency = new LatencyRecorder();
+
+    public ExactScanMatcher(EmbeddingIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public int dimension() {
+        return index.dimension();
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void add(String employeeId, String fingerprintId, float[] embedding) {
+        index.add(employeeId, fingerprintId, embedding);
+    }
+
+    @Override
+    public List<MatchCandidate> search(float[] probe, int k) {
+        long start = System.nanoTime();
+        List<MatchCandidate> candidates = index.search(probe, k);
+        latency.record(System.nanoTime() - start);
+        return candidates;
+    }
+
+    @Override
+    public MatcherStats stats() {
+        return new MatcherStats(TYPE, index.size(), latency.count(), latency.meanMicros(), latency.maxMicros(), 1.0);
+    }
+
+    /**
+     * Nothing to write: the vectors are all there is, and their
+     * {@link TemplateStore} already persists them.
+     */
+    @Override
+    public void save(Path file) {
+    }
+}
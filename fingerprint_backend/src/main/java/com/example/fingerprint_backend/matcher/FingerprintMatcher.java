@@ -0,0 +1,34 @@
+package com.example.fingerprint_backend.matcher;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 1:N matcher over enrolled fingerprint embeddings. Implementations trade
+ * recall for latency differently and report both through {@link #stats()}.
+ */
+public interface FingerprintMatcher {
+
+    String type();
+
+    int dimension();
+
+    int size();
+
+    void add(String employeeId, String fingerprintId, float[] embedding);
+
+    List<MatchCandidate> search(float[] probe, int k);
+
+    default MatchCandidate best(float[] probe) {
+        List<MatchCandidate> candidates = search(probe, 1);
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    MatcherStats stats();
+
+    /**
+     * Writes the matcher to {@code file} so it can be reopened without rebuilding.
+     */
+    void save(Path file) throws IOException;
+}
@@ -0,0 +1,410 @@
+package com.example.fingerprint_backend.matcher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate matcher backed by a Hierarchical Navigable Small World graph.
+ * <p>
+ * Vectors live in an {@link EmbeddingIndex}, normally a view over the
+ * {@link TemplateStore}; the graph only stores row numbers and is persisted on
+ * its own. Inserts are incremental and take a write lock, searches share a read
+ * lock.
+ * Every {@code recallSampleInterval}-th search is replayed against an exact
+ * scan so {@link #stats()} can report the recall actually being achieved.
+ */
+public class HnswMatcher implements FingerprintMatcher {
+
+    public static final String TYPE = "hnsw";
+
+    private static final int MAX_LEVEL = 16;
+
+    private final EmbeddingIndex vectors;
+    private final int m;
+    private final int efConstruction;
+    private final int recallSampleInterval;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LatencyRecorder latency = new LatencyRecorder();
+    private final DoubleAdder recallSum = new DoubleAdder();
+    private final LongAdder recallSamples = new LongAdder();
+
+    private volatile int efSearch;
+    private int[][][] links = new int[1024][][];
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int linked;
+
+    public HnswMatcher(EmbeddingIndex vectors, int m, int efConstruction, int efSearch, int recallSampleInterval) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW M must be at least 2: " + m);
+        }
+        this.vectors = vectors;
+        this.m = m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(efSearch, 1);
+        this.recallSampleInterval = recallSampleInterval;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    /**
+     * Links every row already present in {@code vectors} into a new graph.
+     */
+    public static HnswMatcher build(EmbeddingIndex vectors, int m, int efConstruction, int efSearch,
+                                    int recallSampleInterval) {
+        HnswMatcher matcher = new HnswMatcher(vectors, m, efConstruction, efSearch, recallSampleInterval);
+        matcher.linkPending();
+        return matcher;
+    }
+
+    /**
+     * Reopens a graph written by {@link #save} over {@code vectors}. Rows added
+     * to the vectors after the graph was saved are linked in incrementally.
+     */
+    public static HnswMatcher load(Path file, EmbeddingIndex vectors, int efSearch, int recallSampleInterval)
+            throws IOException {
+        ByteBuffer in = MatcherFiles.map(file, TYPE);
+        int dimension = in.getInt();
+        if (dimension != vectors.dimension()) {
+            throw new IOException("HNSW graph " + file + " was built for dimension " + dimension
+                    + " but the gallery has dimension " + vectors.dimension());
+        }
+        int nodes = in.getInt();
+        if (nodes > vectors.size()) {
+            throw new IOException("HNSW graph " + file + " has " + nodes
+                    + " nodes but the gallery only has " + vectors.size() + " rows");
+        }
+        int m = in.getInt();
+        int efConstruction = in.getInt();
+        HnswMatcher matcher = new HnswMatcher(vectors, m, efConstruction, efSearch, recallSampleInterval);
+        matcher.entryPoint = in.getInt();
+        matcher.maxLevel = in.getInt();
+
+        matcher.links = new int[Math.max(vectors.size(), 1024)][][];
+        for (int node = 0; node < nodes; node++) {
+            int levels = in.getInt();
+            int[][] nodeLinks = new int[levels][];
+            for (int level = 0; level < levels; level++) {
+                int[] list = new int[1 + matcher.maxLinks(level)];
+                int count = in.getInt();
+                list[0] = count;
+                for (int i = 1; i <= count; i++) {
+                    list[i] = in.getInt();
+                }
+                nodeLinks[level] = list;
+            }
+            matcher.links[node] = nodeLinks;
+        }
+        matcher.linked = nodes;
+        matcher.linkPending();
+        return matcher;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public int dimension() {
+        return vectors.dimension();
+    }
+
+    @Override
+    public int size() {
+        return vectors.size();
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = Math.max(efSearch, 1);
+    }
+
+    @Override
+    public void add(String employeeId, String fingerprintId, float[] embedding) {
+        lock.writeLock().lock();
+        try {
+            vectors.add(employeeId, fingerprintId, embedding);
+            linkPending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void linkPending() {
+        int rows = vectors.size();
+        while (linked < rows) {
+            link(linked++);
+        }
+    }
+
+    private void link(int node) {
+        float[] query = vectors.vector(node);
+        int level = randomLevel();
+
+        if (node >= links.length) {
+            links = Arrays.copyOf(links, Math.max(links.length * 2, node + 1));
+        }
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[1 + maxLinks(l)];
+        }
+        links[node] = nodeLinks;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(query, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Scored> nearest = searchLayer(query, ep, efConstruction, l);
+            int selected = Math.min(m, nearest.size());
+            for (int i = 0; i < selected; i++) {
+                int neighbor = nearest.get(i).node;
+                appendLink(nodeLinks[l], neighbor);
+                connect(neighbor, node, l);
+            }
+            ep = nearest.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    @Override
+    public List<MatchCandidate> search(float[] probe, int k) {
+        long start = System.nanoTime();
+        int[] rows = searchRows(probe, k);
+        latency.record(System.nanoTime() - start);
+
+        if (recallSampleInterval > 0 && latency.next() % recallSampleInterval == 0) {
+            sampleRecall(probe, k, rows);
+        }
+
+        float[] query = EmbeddingIndex.normalize(probe);
+        List<MatchCandidate> candidates = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            candidates.add(new MatchCandidate(
+                    vectors.employeeId(row), vectors.fingerprintId(row), vectors.similarity(query, row)));
+        }
+        return candidates;
+    }
+
+    @Override
+    public MatcherStats stats() {
+        long samples = recallSamples.sum();
+        Double recall = samples == 0 ? null : recallSum.sum() / samples;
+        return new MatcherStats(TYPE, linked, latency.count(), latency.meanMicros(), latency.maxMicros(), recall);
+    }
+
+    /**
+     * Writes the graph only; the vectors are persisted by their own store.
+     */
+    @Override
+    public void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            int nodes = linked;
+            long graphSize = 6L * Integer.BYTES;
+            for (int node = 0; node < nodes; node++) {
+                graphSize += Integer.BYTES;
+                for (int[] list : links[node]) {
+                    graphSize += (long) (1 + list[0]) * Integer.BYTES;
+                }
+            }
+
+            MatcherFiles.write(file, TYPE, graphSize, out -> {
+                out.putInt(vectors.dimension());
+                out.putInt(nodes);
+                out.putInt(m);
+                out.putInt(efConstruction);
+                out.putInt(entryPoint);
+                out.putInt(maxLevel);
+                for (int node = 0; node < nodes; node++) {
+                    out.putInt(links[node].length);
+                    for (int[] list : links[node]) {
+                        out.putInt(list[0]);
+                        for (int i = 1; i <= list[0]; i++) {
+                            out.putInt(list[i]);
+                        }
+                    }
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] searchRows(float[] probe, int k) {
+        if (probe.length != vectors.dimension()) {
+            throw new IllegalArgumentException(
+                    "Expected probe of dimension " + vectors.dimension() + " but got " + probe.length);
+        }
+        float[] query = EmbeddingIndex.normalize(probe);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return new int[0];
+            }
+            int ep = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                ep = greedyClosest(query, ep, l);
+            }
+            List<Scored> nearest = searchLayer(query, ep, Math.max(efSearch, k), 0);
+            int[] rows = new int[Math.min(k, nearest.size())];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = nearest.get(i).node;
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void sampleRecall(float[] probe, int k, int[] approximate) {
+        int[] exact = vectors.searchRows(probe, k);
+        if (exact.length == 0) {
+            return;
+        }
+        int hits = 0;
+        for (int row : exact) {
+            for (int candidate : approximate) {
+                if (candidate == row) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        recallSum.add((double) hits / exact.length);
+        recallSamples.increment();
+    }
+
+    private int greedyClosest(float[] query, int ep, int level) {
+        int current = ep;
+        float best = vectors.similarity(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbor = list[i];
+                float score = vectors.similarity(query, neighbor);
+                if (score > best) {
+                    best = score;
+                    current = neighbor;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer; returns up to {@code ef} nodes, best first.
+     */
+    private List<Scored> searchLayer(float[] query, int ep, int ef, int level) {
+        BitSet visited = new BitSet(vectors.size());
+        PriorityQueue<Scored> candidates = new PriorityQueue<>((a, b) -> Float.compare(b.score, a.score));
+        PriorityQueue<Scored> results = new PriorityQueue<>((a, b) -> Float.compare(a.score, b.score));
+
+        Scored start = new Scored(ep, vectors.similarity(query, ep));
+        visited.set(ep);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Scored current = candidates.poll();
+            if (results.size() >= ef && current.score < results.peek().score) {
+                break;
+            }
+            int[] list = links[current.node][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbor = list[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = vectors.similarity(query, neighbor);
+                if (results.size() < ef || score > results.peek().score) {
+                    Scored scored = new Scored(neighbor, score);
+                    candidates.add(scored);
+                    results.add(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Scored> nearest = new ArrayList<>(results);
+        nearest.sort((a, b) -> Float.compare(b.score, a.score));
+        return nearest;
+    }
+
+    private void connect(int node, int neighbor, int level) {
+        int[] list = links[node][level];
+        if (list[0] < list.length - 1) {
+            appendLink(list, neighbor);
+            return;
+        }
+
+        // Neighbour list is full: keep the closest maxLinks(level) of old + new.
+        float[] base = vectors.vector(node);
+        int count = list[0];
+        Scored[] scored = new Scored[count + 1];
+        for (int i = 0; i < count; i++) {
+            scored[i] = new Scored(list[i + 1], vectors.similarity(base, list[i + 1]));
+        }
+        scored[count] = new Scored(neighbor, vectors.similarity(base, neighbor));
+        Arrays.sort(scored, (a, b) -> Float.compare(b.score, a.score));
+        for (int i = 0; i < count; i++) {
+            list[i + 1] = scored[i].node;
+        }
+    }
+
+    private static void appendLink(int[] list, int neighbor) {
+        list[++list[0]] = neighbor;
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return Math.min(MAX_LEVEL, (int) Math.floor(-Math.log(r) * levelMultiplier));
+    }
+
+    private static final class Scored {
+        private final int node;
+        private final float score;
+
+        private Scored(int node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.fingerprint_backend.matcher;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+class LatencyRecorder {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+    private final AtomicLong sequence = new AtomicLong();
+
+    void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    long next() {
+        return sequence.incrementAndGet();
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    double meanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : totalNanos.sum() / (n * 1000.0);
+    }
+
+    double maxMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+}
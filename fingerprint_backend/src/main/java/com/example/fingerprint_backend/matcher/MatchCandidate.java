@@ -0,0 +1,12 @@
+package com.example.fingerprint_backend.matcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MatchCandidate {
+    private final String employeeId;
+    private final String fingerprintId;
+    private final float score;
+}
@@ -0,0 +1,95 @@
+package com.example.fingerprint_backend.matcher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Memory-mapped on-disk format shared by the matcher implementations. Files are
+ * written to a temporary sibling and moved into place atomically, so a crash
+ * during a save never leaves a truncated index behind.
+ */
+final class MatcherFiles {
+
+    private static final int MAGIC = 0x46504d58;
+    private static final int VERSION = 1;
+
+    private MatcherFiles() {
+    }
+
+    static ByteBuffer map(Path file, String type) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a matcher file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported matcher file version " + version + ": " + file);
+            }
+            String storedType = getString(buffer);
+            if (!type.equals(storedType)) {
+                throw new IOException("Matcher file " + file + " holds a '" + storedType + "' index, expected '" + type + "'");
+            }
+            return buffer;
+        }
+    }
+
+    static void write(Path file, String type, long bodySize, Consumer<ByteBuffer> body) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long size = 8L + stringSize(type) + bodySize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Matcher index too large for a single mapping: " + size + " bytes");
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            putString(buffer, type);
+            body.accept(buffer);
+            buffer.force();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int stringSize(String value) {
+        return Short.BYTES + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.fingerprint_backend.matcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MatcherStats {
+    private final String type;
+    private final int size;
+    private final long searches;
+    private final double meanLatencyMicros;
+    private final double maxLatencyMicros;
+    private final Double estimatedRecall;
+}
@@ -0,0 +1,390 @@
+package com.example.fingerprint_backend.matcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Java-owned binary store of enrolled fingerprint templates.
+ * <p>
+ * Each generation is a pair of files in the store directory:
+ * <ul>
+ *     <li>{@code templates-<gen>.dat}: a 64-byte header followed by fixed-stride
+ *     records of employee id, finger id, model id and the normalized float
+ *     vector. The file is memory-mapped and matchers read vectors from the
+ *     mapping directly.</li>
+ *     <li>{@code templates-<gen>.log}: an append log of records written since
+ *     the last checkpoint, replayed into the data file on open.</li>
+ * </ul>
+ * The {@code CURRENT} file names the live generation. Rebuilds and resets write
+ * a complete new generation and then replace {@code CURRENT} with an atomic
+ * move, so readers either see the old gallery or the new one.
+ */
+public class TemplateStore implements Closeable {
+
+    static final int HEADER_BYTES = 64;
+    static final int EMPLOYEE_ID_BYTES = 64;
+    static final int FINGERPRINT_ID_BYTES = 32;
+    static final int MODEL_ID_BYTES = 64;
+    static final int VECTOR_OFFSET_BYTES = EMPLOYEE_ID_BYTES + FINGERPRINT_ID_BYTES + MODEL_ID_BYTES;
+
+    private static final int MAGIC = 0x46505453;
+    private static final int VERSION = 1;
+    private static final int COUNT_OFFSET = 16;
+    private static final int MIN_CAPACITY = 1024;
+    private static final String CURRENT = "CURRENT";
+
+    private final Path directory;
+    private final String modelId;
+    private final boolean syncWrites;
+
+    private Generation current;
+
+    private TemplateStore(Path directory, String modelId, boolean syncWrites) {
+        this.directory = directory;
+        this.modelId = modelId;
+        this.syncWrites = syncWrites;
+    }
+
+    /**
+     * Opens the live generation in {@code directory}, replaying its append log.
+     * The directory is created if needed; an empty store has no generation.
+     */
+    public static TemplateStore open(Path directory, String modelId, boolean syncWrites) throws IOException {
+        Files.createDirectories(directory);
+        TemplateStore store = new TemplateStore(directory, modelId, syncWrites);
+        Path pointer = directory.resolve(CURRENT);
+        if (Files.exists(pointer)) {
+            long number = Long.parseLong(Files.readString(pointer, StandardCharsets.US_ASCII).trim());
+            store.current = Generation.open(store, number);
+        }
+        return store;
+    }
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    public synchronized boolean isEmpty() {
+        return current == null || current.count == 0;
+    }
+
+    public synchronized long generation() {
+        return current == null ? 0 : current.number;
+    }
+
+    /**
+     * Index over the live generation, or {@code null} if nothing has been stored yet.
+     * Rows added to the returned index are written through to the store.
+     */
+    public synchronized EmbeddingIndex index() {
+        return current == null ? null : current.index;
+    }
+
+    /**
+     * Writes a complete new generation with {@code loader} and swaps it in
+     * atomically. Bulk-loaded rows skip the append log and are checkpointed once.
+     */
+    public synchronized EmbeddingIndex rebuild(int dimension, Consumer<EmbeddingIndex> loader) throws IOException {
+        Generation next = Generation.create(this, nextGeneration(), dimension, false);
+        try {
+            loader.accept(next.index);
+            next.checkpoint();
+            next.logWrites = true;
+        } catch (RuntimeException | IOException e) {
+            next.close();
+            next.delete();
+            throw e;
+        }
+        swap(next);
+        return next.index;
+    }
+
+    /**
+     * Replaces the live generation with an empty one of the same dimension.
+     */
+    public synchronized EmbeddingIndex reset() throws IOException {
+        if (current == null) {
+            return null;
+        }
+        return rebuild(current.dimension, index -> { });
+    }
+
+    /**
+     * Flushes the mapping, records the row count in the header and truncates the log.
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (current != null) {
+            current.checkpoint();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (current != null) {
+            current.checkpoint();
+            current.close();
+            current = null;
+        }
+    }
+
+    private long nextGeneration() {
+        return current == null ? 1 : current.number + 1;
+    }
+
+    private void swap(Generation next) throws IOException {
+        Path pointer = directory.resolve(CURRENT);
+        Path tmp = directory.resolve(CURRENT + ".tmp");
+        Files.writeString(tmp, Long.toString(next.number), StandardCharsets.US_ASCII);
+        Files.move(tmp, pointer, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Generation previous = current;
+        current = next;
+        if (previous != null) {
+            // Searches still running against the old index keep a valid mapping
+            // after the files are unlinked.
+            previous.close();
+            previous.delete();
+        }
+    }
+
+    static final class Generation implements Closeable {
+        private final TemplateStore store;
+        private final long number;
+        private final int dimension;
+        private final int stride;
+        private final Path dataFile;
+        private final Path logFile;
+        private final FileChannel dataChannel;
+        private final FileChannel logChannel;
+
+        private EmbeddingIndex index;
+        private MappedByteBuffer data;
+        private FloatBuffer floats;
+        private int capacity;
+        private int count;
+        private boolean logWrites = true;
+
+        private Generation(TemplateStore store, long number, int dimension, int count, int capacity) throws IOException {
+            this.store = store;
+            this.number = number;
+            this.dimension = dimension;
+            this.stride = VECTOR_OFFSET_BYTES + dimension * Float.BYTES;
+            this.dataFile = store.directory.resolve("templates-" + number + ".dat");
+            this.logFile = store.directory.resolve("templates-" + number + ".log");
+            this.dataChannel = FileChannel.open(dataFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.logChannel = FileChannel.open(logFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.count = count;
+            map(Math.max(capacity, MIN_CAPACITY));
+        }
+
+        static Generation create(TemplateStore store, long number, int dimension, boolean logWrites) throws IOException {
+            Files.deleteIfExists(store.directory.resolve("templates-" + number + ".dat"));
+            Files.deleteIfExists(store.directory.resolve("templates-" + number + ".log"));
+            Generation generation = new Generation(store, number, dimension, 0, MIN_CAPACITY);
+            generation.logWrites = logWrites;
+            generation.writeHeader();
+            generation.index = new EmbeddingIndex(generation);
+            return generation;
+        }
+
+        static Generation open(TemplateStore store, long number) throws IOException {
+            Path dataFile = store.directory.resolve("templates-" + number + ".dat");
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                channel.read(header, 0);
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a template store file: " + dataFile);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported template store version " + version + ": " + dataFile);
+            }
+            int dimension = header.getInt();
+            header.getInt();
+            int count = header.getInt();
+
+            Generation generation = new Generation(store, number, dimension, count, count * 2);
+            generation.replayLog();
+            generation.index = new EmbeddingIndex(generation);
+            return generation;
+        }
+
+        int dimension() {
+            return dimension;
+        }
+
+        int count() {
+            return count;
+        }
+
+        FloatBuffer floats() {
+            return floats;
+        }
+
+        int rowStrideFloats() {
+            return stride / Float.BYTES;
+        }
+
+        int vectorOffsetFloats() {
+            return VECTOR_OFFSET_BYTES / Float.BYTES;
+        }
+
+        String employeeId(int row) {
+            return readId(recordOffset(row));
+        }
+
+        String fingerprintId(int row) {
+            return readId(recordOffset(row) + EMPLOYEE_ID_BYTES);
+        }
+
+        String modelId(int row) {
+            return readId(recordOffset(row) + EMPLOYEE_ID_BYTES + FINGERPRINT_ID_BYTES);
+        }
+
+        /**
+         * Appends a normalized vector: first to the log, then into the mapping.
+         */
+        synchronized int append(String employeeId, String fingerprintId, float[] normalized) throws IOException {
+            int row = count;
+            if (row == capacity) {
+                map(capacity * 2);
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + stride).order(ByteOrder.LITTLE_ENDIAN);
+            record.putInt(row);
+            putId(record, employeeId, EMPLOYEE_ID_BYTES);
+            putId(record, fingerprintId, FINGERPRINT_ID_BYTES);
+            putId(record, store.modelId, MODEL_ID_BYTES);
+            for (float value : normalized) {
+                record.putFloat(value);
+            }
+            record.flip();
+
+            if (logWrites) {
+                long position = logChannel.size();
+                while (record.hasRemaining()) {
+                    position += logChannel.write(record, position);
+                }
+                if (store.syncWrites) {
+                    logChannel.force(false);
+                }
+            }
+
+            data.put(recordOffset(row), record, Integer.BYTES, stride);
+            count = row + 1;
+            return row;
+        }
+
+        synchronized void checkpoint() throws IOException {
+            data.force();
+            data.putInt(COUNT_OFFSET, count);
+            data.force();
+            logChannel.truncate(0);
+            logChannel.force(true);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            dataChannel.close();
+            logChannel.close();
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(logFile);
+        }
+
+        private void replayLog() throws IOException {
+            long size = logChannel.size();
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + stride).order(ByteOrder.LITTLE_ENDIAN);
+            long position = 0;
+            while (position + record.capacity() <= size) {
+                record.clear();
+                while (record.hasRemaining()) {
+                    logChannel.read(record, position + record.position());
+                }
+                record.flip();
+                int row = record.getInt(0);
+                if (row == count) {
+                    if (row == capacity) {
+                        map(capacity * 2);
+                    }
+                    data.put(recordOffset(row), record, Integer.BYTES, stride);
+                    count = row + 1;
+                }
+                position += record.capacity();
+            }
+            if (position < size) {
+                // Torn write at the tail from a crash: drop it.
+                logChannel.truncate(position);
+            }
+        }
+
+        private void writeHeader() {
+            data.putInt(0, MAGIC);
+            data.putInt(4, VERSION);
+            data.putInt(8, dimension);
+            data.putInt(12, stride);
+            data.putInt(COUNT_OFFSET, count);
+            data.putLong(20, number);
+        }
+
+        private void map(int newCapacity) throws IOException {
+            long size = HEADER_BYTES + (long) newCapacity * stride;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Template store generation exceeds a single mapping: " + size + " bytes");
+            }
+            MappedByteBuffer mapped = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            data = mapped;
+            floats = mapped.slice(HEADER_BYTES, (int) size - HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer();
+            capacity = newCapacity;
+        }
+
+        private int recordOffset(int row) {
+            return HEADER_BYTES + row * stride;
+        }
+
+        private String readId(int offset) {
+            int length = data.get(offset) & 0xff;
+            if (length == 0xff) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            data.get(offset + 1, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static void putId(ByteBuffer record, String value, int width) {
+            int start = record.position();
+            if (value == null) {
+                record.put((byte) 0xff);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > width - 1) {
+                    throw new IllegalArgumentException("Identifier longer than " + (width - 1) + " bytes: " + value);
+                }
+                record.put((byte) bytes.length);
+                record.put(bytes);
+            }
+            record.position(start + width);
+        }
+    }
+}
@@ -6,24 +6,33 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.Builder;
 
+import com.example.fingerprint_backend.util.TimeOrderedUuidGenerator;
 import jakarta.persistence.*;
+import org.hibernate.annotations.UuidGenerator;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Table(indexes = {
+        @Index(name = "idx_access_log_employee_timestamp", columnList = "employee_id, timestamp"),
+        @Index(name = "idx_access_log_area_timestamp", columnList = "area_id, timestamp"),
+        @Index(name = "idx_access_log_timestamp", columnList = "timestamp")
+})
 public class AccessLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private String id;
+    @GeneratedValue
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
+    private UUID id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "area_id")
     private Area area;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnore
     @JoinColumn(name = "employee_id")
     private Employee employee;
@@ -31,8 +40,4 @@ public class AccessLog {
     private LocalDateTime timestamp;
     private boolean authorized;
     private String accessType;
-
-    @JsonIgnore
-    @OneToOne(mappedBy = "accessLog")
-    private Recognition recognition;
 }
\ No newline at end of file
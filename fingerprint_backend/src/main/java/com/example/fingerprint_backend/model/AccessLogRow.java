@@ -0,0 +1,20 @@
+package com.example.fingerprint_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccessLogRow {
+    private UUID id;
+    private LocalDateTime timestamp;
+    private String employeeId;
+    private String areaId;
+    private boolean authorized;
+    private String accessType;
+}
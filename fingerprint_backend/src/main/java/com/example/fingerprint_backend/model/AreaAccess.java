@@ -6,9 +6,12 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.Builder;
 
+import com.example.fingerprint_backend.util.TimeOrderedUuidGenerator;
 import jakarta.persistence.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Data
@@ -17,20 +20,21 @@ import java.time.LocalDateTime;
 @Builder
 public class AreaAccess {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private String id;
+    @GeneratedValue
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
+    private UUID id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "area_id")
     private Area area;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "employee_id")
     private Employee employee;
 
     private LocalDateTime timestamp;
 
-    public AreaAccess(String id, Area area, LocalDateTime timestamp) {
+    public AreaAccess(UUID id, Area area, LocalDateTime timestamp) {
         this.id = id;
         this.area = area;
         this.timestamp = timestamp;
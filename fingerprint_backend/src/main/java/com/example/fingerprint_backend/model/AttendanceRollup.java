@@ -0,0 +1,30 @@
+package com.example.fingerprint_backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Accesses of one employee to one area on one day. Maintained by
+ * {@code AttendanceRollupService} as access logs are written; never updated
+ * through JPA.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "attendance_rollup", indexes = @Index(name = "idx_attendance_rollup_date", columnList = "access_date, employee_id"))
+public class AttendanceRollup {
+    @EmbeddedId
+    private AttendanceRollupId id;
+
+    private long accessCount;
+    private long authorizedCount;
+    private LocalDateTime firstSeen;
+    private LocalDateTime lastSeen;
+}
@@ -0,0 +1,25 @@
+package com.example.fingerprint_backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceRollupId implements Serializable {
+    @Column(name = "employee_id")
+    private String employeeId;
+
+    @Column(name = "area_id")
+    private String areaId;
+
+    @Column(name = "access_date")
+    private LocalDate accessDate;
+}
@@ -0,0 +1,19 @@
+package com.example.fingerprint_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Every employee in {@code employeeIds} with every area in {@code areaIds};
+ * all areas when {@code areaIds} is omitted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAccessRequest {
+    private List<String> employeeIds;
+    private List<String> areaIds;
+}
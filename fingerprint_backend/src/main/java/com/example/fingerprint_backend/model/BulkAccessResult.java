@@ -0,0 +1,18 @@
+package com.example.fingerprint_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAccessResult {
+    private int requested;
+    private int changed;
+    private int unchanged;
+    private List<String> unknownEmployeeIds;
+    private List<String> unknownAreaIds;
+}
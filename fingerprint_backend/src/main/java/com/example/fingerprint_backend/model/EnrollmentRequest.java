@@ -0,0 +1,13 @@
+package com.example.fingerprint_backend.model;
+
+import lombok.Data;
+import org.springframework.web.multipart.MultipartFile;
+
+@Data
+public class EnrollmentRequest {
+    private transient MultipartFile file;
+    private String employeeId;
+    private String fingerprintId;
+    private FingerprintSegmentationModel segmentationModel;
+    private FingerprintRecognitionModel recognitionModel;
+}
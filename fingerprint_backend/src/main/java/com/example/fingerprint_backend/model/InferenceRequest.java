@@ -0,0 +1,25 @@
+package com.example.fingerprint_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of the binary ({@code /api/v2}) recognize and embed calls: one model
+ * pair and any number of encoded scans, answered in the same order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InferenceRequest {
+    @JsonProperty("segmentation_model_path")
+    private String segmentationModelPath;
+
+    @JsonProperty("recognition_model_path")
+    private String recognitionModelPath;
+
+    private List<byte[]> images;
+}
@@ -0,0 +1,37 @@
+package com.example.fingerprint_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Reply to an {@link InferenceRequest}: one result per image, which carries
+ * either the match fields (recognize), the embedding (embed) or an error.
+ */
+@Data
+@NoArgsConstructor
+public class InferenceResponse {
+    private int dimension;
+    private List<Result> results;
+    private String error;
+
+    @Data
+    @NoArgsConstructor
+    public static class Result {
+        @JsonProperty("employee_id")
+        private String employeeId;
+
+        @JsonProperty("fingerprint_id")
+        private String fingerprintId;
+
+        private double confidence;
+        private boolean match;
+
+        // little-endian float32
+        private byte[] embedding;
+
+        private String error;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.fingerprint_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecognitionRow {
+    private UUID id;
+    private LocalDateTime timestamp;
+    private UUID accessLogId;
+    private String employeeId;
+    private String segmentationModelId;
+    private String recognitionModelId;
+    private float confidence;
+}
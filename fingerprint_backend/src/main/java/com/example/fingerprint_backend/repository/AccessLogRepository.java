@@ -2,20 +2,32 @@ package com.example.fingerprint_backend.repository;
 
 
 import com.example.fingerprint_backend.model.AccessLog;
+import com.example.fingerprint_backend.model.AccessLogRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface AccessLogRepository extends JpaRepository<AccessLog, String> {
+public interface AccessLogRepository extends JpaRepository<AccessLog, UUID> {
+    @EntityGraph(attributePaths = "area")
     List<AccessLog> findByEmployeeId(String employeeId);
+    @EntityGraph(attributePaths = "area")
     List<AccessLog> findByAreaId(String areaId);
+    @EntityGraph(attributePaths = "area")
     List<AccessLog> findByTimestampBetween(LocalDateTime start, LocalDateTime end);
     @Query("SELECT al FROM AccessLog al " +
+            "LEFT JOIN FETCH al.area " +
             "WHERE al.employee.id = :employeeId " +
             "AND (:startDate IS NULL OR al.timestamp >= :startDate) " +
             "AND (:endDate IS NULL OR al.timestamp <= :endDate) " +
@@ -28,4 +40,48 @@ public interface AccessLogRepository extends JpaRepository<AccessLog, String> {
             @Param("accessType") String accessType,
             @Param("areaId") String areaId
     );
-}
\ No newline at end of file
+
+    /**
+     * The next page of an employee's logs after the key
+     * {@code (afterTimestamp, afterId)}, in {@code (timestamp, id)} order.
+     */
+    @Query("SELECT al FROM AccessLog al " +
+            "LEFT JOIN FETCH al.area " +
+            "WHERE al.employee.id = :employeeId " +
+            "AND al.timestamp >= :afterTimestamp " +
+            "AND al.timestamp <= :endDate " +
+            "AND (al.timestamp > :afterTimestamp OR al.id > :afterId) " +
+            "AND (:accessType IS NULL OR al.accessType = :accessType) " +
+            "AND (:areaId IS NULL OR al.area.id = :areaId) " +
+            "ORDER BY al.timestamp, al.id")
+    List<AccessLog> findPageByEmployee(
+            @Param("employeeId") String employeeId,
+            @Param("afterTimestamp") LocalDateTime afterTimestamp,
+            @Param("afterId") UUID afterId,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("accessType") String accessType,
+            @Param("areaId") String areaId,
+            Limit limit
+    );
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.example.fingerprint_backend.model.AccessLogRow(" +
+            "al.id, al.timestamp, al.employee.id, al.area.id, al.authorized, al.accessType) " +
+            "FROM AccessLog al " +
+            "WHERE al.timestamp >= :startDate " +
+            "AND al.timestamp <= :endDate " +
+            "AND (:employeeId IS NULL OR al.employee.id = :employeeId) " +
+            "AND (:accessType IS NULL OR al.accessType = :accessType) " +
+            "AND (:areaId IS NULL OR al.area.id = :areaId) " +
+            "ORDER BY al.timestamp, al.id")
+    Stream<AccessLogRow> streamRows(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("employeeId") String employeeId,
+            @Param("accessType") String accessType,
+            @Param("areaId") String areaId
+    );
+}
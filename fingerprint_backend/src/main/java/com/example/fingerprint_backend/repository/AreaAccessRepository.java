@@ -5,12 +5,17 @@ import com.example.fingerprint_backend.model.AreaAccess;
 import com.example.fingerprint_backend.model.Employee;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.UUID;
 
-public interface AreaAccessRepository extends JpaRepository<AreaAccess, String> {
-    @Query("SELECT new AreaAccess(aa.id, aa.area, aa.timestamp) FROM AreaAccess aa")
-    List<AreaAccess> findByEmployeeId(String employeeId);
+public interface AreaAccessRepository extends JpaRepository<AreaAccess, UUID> {
+    @Query("SELECT new AreaAccess(aa.id, aa.area, aa.timestamp) FROM AreaAccess aa WHERE aa.employee.id = :employeeId")
+    List<AreaAccess> findByEmployeeId(@Param("employeeId") String employeeId);
+
+    @Query("SELECT aa.employee.id, aa.area.id FROM AreaAccess aa")
+    List<Object[]> findAllEmployeeAreaPairs();
 
     boolean existsByEmployeeAndArea(Employee employee, Area area);
     boolean existsByEmployeeIdAndAreaId(String employeeId, String areaId);
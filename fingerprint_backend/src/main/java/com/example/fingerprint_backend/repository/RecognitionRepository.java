@@ -1,13 +1,54 @@
 package com.example.fingerprint_backend.repository;
 
 import com.example.fingerprint_backend.model.Recognition;
+import com.example.fingerprint_backend.model.RecognitionRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface RecognitionRepository extends JpaRepository<Recognition, String> {
+public interface RecognitionRepository extends JpaRepository<Recognition, UUID> {
+    @EntityGraph(attributePaths = "employee")
     List<Recognition> findByEmployeeId(String employeeId);
-}
 
+    @Query("SELECT r FROM Recognition r LEFT JOIN FETCH r.employee ORDER BY r.timestamp, r.id")
+    List<Recognition> findFirstPage(Limit limit);
+
+    @Query("SELECT r FROM Recognition r " +
+            "LEFT JOIN FETCH r.employee " +
+            "WHERE r.timestamp >= :afterTimestamp " +
+            "AND (r.timestamp > :afterTimestamp OR r.id > :afterId) " +
+            "ORDER BY r.timestamp, r.id")
+    List<Recognition> findPageAfter(
+            @Param("afterTimestamp") LocalDateTime afterTimestamp,
+            @Param("afterId") UUID afterId,
+            Limit limit
+    );
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.example.fingerprint_backend.model.RecognitionRow(" +
+            "r.id, r.timestamp, r.accessLog.id, r.employee.id, " +
+            "r.fingerprintSegmentationModel.id, r.fingerprintRecognitionModel.id, r.confidence) " +
+            "FROM Recognition r " +
+            "WHERE r.timestamp >= :startDate " +
+            "AND r.timestamp <= :endDate " +
+            "ORDER BY r.timestamp, r.id")
+    Stream<RecognitionRow> streamRows(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+}
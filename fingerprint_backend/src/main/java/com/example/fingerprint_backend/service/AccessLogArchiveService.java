@@ -0,0 +1,322 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.journal.AccessEvent;
+import com.example.fingerprint_backend.model.AccessLog;
+import com.example.fingerprint_backend.model.Area;
+import com.example.fingerprint_backend.repository.AreaRepository;
+import com.example.fingerprint_backend.util.KeysetCursor;
+import com.example.fingerprint_backend.util.TimeOrderedUuid;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves access logs older than {@code fingerprint.archive.retention-months}
+ * out of MySQL into one gzip-compressed NDJSON file per month
+ * ({@code access-log-YYYY-MM.ndjson.gz}), so the live table only holds the
+ * recent months the gates and dashboards query.
+ * <p>
+ * Each line is an {@link AccessEvent}, the same shape the journal uses: the
+ * access log with its recognition flattened in. A month is exported in keyset
+ * chunks to a temporary file, which is synced and moved into place before the
+ * archived rows are deleted; the deletes are driven by reading the ids back
+ * from the archive, so a run interrupted after the move is completed by the
+ * next one without duplicating rows.
+ * <p>
+ * Archived months remain queryable through {@link #findPageByEmployee} and
+ * {@link #forEachInRange}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccessLogArchiveService {
+
+    private static final String SELECT_COLUMNS =
+            "SELECT a.id, a.area_id, a.employee_id, a.timestamp, a.authorized, a.access_type, "
+                    + "r.id, r.fingerprint_region_model_id, r.fingerprint_recognition_model_id, r.confidence "
+                    + "FROM access_log a LEFT JOIN recognition r ON r.access_log_id = a.id "
+                    + "WHERE a.timestamp >= ? AND a.timestamp < ? ";
+    private static final String SELECT_FIRST_CHUNK =
+            SELECT_COLUMNS + "ORDER BY a.timestamp, a.id LIMIT ?";
+    private static final String SELECT_NEXT_CHUNK =
+            SELECT_COLUMNS + "AND (a.timestamp > ? OR (a.timestamp = ? AND a.id > ?)) ORDER BY a.timestamp, a.id LIMIT ?";
+
+    @Value("${fingerprint.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fingerprint.archive.dir:data/archive}")
+    private String archiveDir;
+
+    @Value("${fingerprint.archive.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${fingerprint.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AreaRepository areaRepository;
+    private final ObjectMapper objectMapper;
+
+    @Scheduled(cron = "${fingerprint.archive.cron:0 30 2 * * *}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveExpired();
+        } catch (Exception e) {
+            log.warn("Access log archival failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Archives every month that ended before the retention window and returns
+     * the number of rows moved per month.
+     */
+    public synchronized Map<String, Long> archiveExpired() throws IOException {
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        Map<String, Long> archived = new LinkedHashMap<>();
+
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(timestamp) FROM access_log WHERE timestamp < ?",
+                Timestamp.class, cutoff.atDay(1).atStartOfDay());
+        if (oldest == null) {
+            return archived;
+        }
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(cutoff); month = month.plusMonths(1)) {
+            long rows = archiveMonth(month);
+            if (rows > 0) {
+                archived.put(month.toString(), rows);
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * The next page of an employee's archived logs after {@code after}, in
+     * {@code (timestamp, id)} order. Months are read oldest first, and reading
+     * stops at the first month that completes the page.
+     */
+    public List<AccessLog> findPageByEmployee(
+            String employeeId,
+            KeysetCursor after,
+            LocalDateTime endDate,
+            String accessType,
+            String areaId,
+            int limit) throws IOException {
+        List<AccessEvent> events = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(after.getTimestamp());
+             !month.isAfter(YearMonth.from(endDate)) && events.size() < limit;
+             month = month.plusMonths(1)) {
+            Path file = archiveFile(month);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            read(file, event -> {
+                if (employeeId.equals(event.getEmployeeId())
+                        && after.isBefore(event.getTimestamp(), event.getAccessLogId())
+                        && !event.getTimestamp().isAfter(endDate)
+                        && (accessType == null || accessType.equals(event.getAccessType()))
+                        && (areaId == null || areaId.equals(event.getAreaId()))) {
+                    events.add(event);
+                }
+            });
+        }
+        events.sort((a, b) -> KeysetCursor.compare(a.getTimestamp(), a.getAccessLogId(), b.getTimestamp(), b.getAccessLogId()));
+
+        List<AccessLog> accessLogs = new ArrayList<>(Math.min(limit, events.size()));
+        Map<String, Optional<Area>> areas = new HashMap<>();
+        for (AccessEvent event : events.subList(0, Math.min(limit, events.size()))) {
+            accessLogs.add(AccessLog.builder()
+                    .id(event.getAccessLogId())
+                    .area(areas.computeIfAbsent(event.getAreaId(), areaRepository::findById).orElse(null))
+                    .timestamp(event.getTimestamp())
+                    .authorized(event.isAuthorized())
+                    .accessType(event.getAccessType())
+                    .build());
+        }
+        return accessLogs;
+    }
+
+    /**
+     * Passes every archived event with a timestamp in the range to the
+     * consumer, month by month, without holding more than one line in memory.
+     */
+    public void forEachInRange(LocalDateTime startDate, LocalDateTime endDate, Consumer<AccessEvent> consumer) throws IOException {
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate)); month = month.plusMonths(1)) {
+            Path file = archiveFile(month);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            read(file, event -> {
+                if (!event.getTimestamp().isBefore(startDate) && !event.getTimestamp().isAfter(endDate)) {
+                    consumer.accept(event);
+                }
+            });
+        }
+    }
+
+    /**
+     * Start of the oldest month still held in the database; anything before it
+     * is only in the archive.
+     */
+    public LocalDateTime archiveHorizon() {
+        return YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay();
+    }
+
+    public List<String> archivedMonths() throws IOException {
+        Path directory = Paths.get(archiveDir);
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("access-log-") && name.endsWith(".ndjson.gz"))
+                    .map(name -> name.substring("access-log-".length(), name.length() - ".ndjson.gz".length()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private long archiveMonth(YearMonth month) throws IOException {
+        Path file = archiveFile(month);
+        if (Files.exists(file)) {
+            // finish an earlier run that stopped between writing the file and deleting the rows
+            deleteArchived(file);
+        }
+
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long rows;
+        try (FileOutputStream fileOut = new FileOutputStream(tmp.toFile())) {
+            GZIPOutputStream out = new GZIPOutputStream(fileOut, 65536);
+            if (Files.exists(file)) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(file), 65536)) {
+                    in.transferTo(out);
+                }
+            }
+            rows = export(month, out);
+            out.finish();
+            fileOut.getFD().sync();
+        }
+        if (rows == 0) {
+            Files.delete(tmp);
+            return 0;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteArchived(file);
+        log.info("Archived {} access logs from {} to {}", rows, month, file);
+        return rows;
+    }
+
+    private long export(YearMonth month, OutputStream out) throws IOException {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        long rows = 0;
+        AccessEvent last = null;
+        while (true) {
+            List<AccessEvent> chunk = last == null
+                    ? jdbcTemplate.query(SELECT_FIRST_CHUNK, this::mapEvent, from, to, chunkSize)
+                    : jdbcTemplate.query(SELECT_NEXT_CHUNK, this::mapEvent, from, to,
+                    last.getTimestamp(), last.getTimestamp(), TimeOrderedUuid.toBytes(last.getAccessLogId()), chunkSize);
+            for (AccessEvent event : chunk) {
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write('\n');
+            }
+            rows += chunk.size();
+            if (chunk.size() < chunkSize) {
+                return rows;
+            }
+            last = chunk.get(chunk.size() - 1);
+        }
+    }
+
+    private void deleteArchived(Path file) throws IOException {
+        List<byte[]> ids = new ArrayList<>(chunkSize);
+        read(file, event -> {
+            ids.add(TimeOrderedUuid.toBytes(event.getAccessLogId()));
+            if (ids.size() == chunkSize) {
+                delete(ids);
+                ids.clear();
+            }
+        });
+        if (!ids.isEmpty()) {
+            delete(ids);
+        }
+    }
+
+    private void delete(List<byte[]> ids) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("ids", ids);
+        transactionTemplate.executeWithoutResult(status -> {
+            namedParameterJdbcTemplate.update("DELETE FROM recognition WHERE access_log_id IN (:ids)", parameters);
+            namedParameterJdbcTemplate.update("DELETE FROM access_log WHERE id IN (:ids)", parameters);
+        });
+    }
+
+    private void read(Path file, Consumer<AccessEvent> consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), 65536), StandardCharsets.UTF_8))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (!line.isEmpty()) {
+                    consumer.accept(objectMapper.readValue(line, AccessEvent.class));
+                }
+            }
+        }
+    }
+
+    private AccessEvent mapEvent(ResultSet resultSet, int row) throws SQLException {
+        byte[] recognitionId = resultSet.getBytes(7);
+        return AccessEvent.builder()
+                .accessLogId(TimeOrderedUuid.fromBytes(resultSet.getBytes(1)))
+                .areaId(resultSet.getString(2))
+                .employeeId(resultSet.getString(3))
+                .timestamp(resultSet.getObject(4, LocalDateTime.class))
+                .authorized(resultSet.getBoolean(5))
+                .accessType(resultSet.getString(6))
+                .recognitionId(recognitionId != null ? TimeOrderedUuid.fromBytes(recognitionId) : null)
+                .segmentationModelId(resultSet.getString(8))
+                .recognitionModelId(resultSet.getString(9))
+                .confidence(resultSet.getFloat(10))
+                .build();
+    }
+
+    private Path archiveFile(YearMonth month) {
+        return Paths.get(archiveDir).resolve("access-log-" + month + ".ndjson.gz");
+    }
+}
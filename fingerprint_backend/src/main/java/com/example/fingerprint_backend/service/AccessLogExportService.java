@@ -0,0 +1,215 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.AccessLogRow;
+import com.example.fingerprint_backend.model.RecognitionRow;
+import com.example.fingerprint_backend.repository.AccessLogRepository;
+import com.example.fingerprint_backend.repository.RecognitionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Writes access logs and recognitions to a response as NDJSON or CSV while
+ * they are read. Rows come from JPA {@link Stream} queries that select flat
+ * row DTOs with a JDBC fetch size, inside a read-only transaction, so neither
+ * the persistence context nor the driver accumulates the result; the writer is
+ * flushed every {@code fingerprint.export.flush-rows} rows. Archived access logs
+ * in the range are written first.
+ */
+@Service
+public class AccessLogExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final String ACCESS_LOG_HEADER = "id,timestamp,employeeId,areaId,authorized,accessType";
+    private static final String RECOGNITION_HEADER =
+            "id,timestamp,accessLogId,employeeId,segmentationModelId,recognitionModelId,confidence";
+
+    @Value("${fingerprint.export.flush-rows:1000}")
+    private int flushRows;
+
+    private final AccessLogRepository accessLogRepository;
+    private final RecognitionRepository recognitionRepository;
+    private final AccessLogArchiveService accessLogArchiveService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public AccessLogExportService(
+            AccessLogRepository accessLogRepository,
+            RecognitionRepository recognitionRepository,
+            AccessLogArchiveService accessLogArchiveService,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.accessLogRepository = accessLogRepository;
+        this.recognitionRepository = recognitionRepository;
+        this.accessLogArchiveService = accessLogArchiveService;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public long exportAccessLogs(
+            Format format,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String employeeId,
+            String accessType,
+            String areaId,
+            OutputStream out) throws IOException {
+        RowWriter writer = new RowWriter(format, out);
+        writer.header(ACCESS_LOG_HEADER);
+        try {
+            if (startDate.isBefore(accessLogArchiveService.archiveHorizon())) {
+                accessLogArchiveService.forEachInRange(startDate, endDate, event -> {
+                    if ((employeeId == null || employeeId.equals(event.getEmployeeId()))
+                            && (accessType == null || accessType.equals(event.getAccessType()))
+                            && (areaId == null || areaId.equals(event.getAreaId()))) {
+                        writer.accessLog(new AccessLogRow(event.getAccessLogId(), event.getTimestamp(),
+                                event.getEmployeeId(), event.getAreaId(), event.isAuthorized(), event.getAccessType()));
+                    }
+                });
+            }
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<AccessLogRow> rows = accessLogRepository.streamRows(startDate, endDate, employeeId, accessType, areaId)) {
+                    rows.forEach(writer::accessLog);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.finish();
+    }
+
+    public long exportRecognitions(
+            Format format,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            OutputStream out) throws IOException {
+        RowWriter writer = new RowWriter(format, out);
+        writer.header(RECOGNITION_HEADER);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<RecognitionRow> rows = recognitionRepository.streamRows(startDate, endDate)) {
+                    rows.forEach(writer::recognition);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.finish();
+    }
+
+    private final class RowWriter {
+        private final Format format;
+        private final Writer writer;
+        private long rows;
+
+        private RowWriter(Format format, OutputStream out) {
+            this.format = format;
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536);
+        }
+
+        void header(String header) throws IOException {
+            if (format == Format.CSV) {
+                writer.write(header);
+                writer.write('\n');
+            }
+        }
+
+        void accessLog(AccessLogRow row) {
+            if (format == Format.NDJSON) {
+                json(row);
+            } else {
+                csv(row.getId(), row.getTimestamp(), row.getEmployeeId(), row.getAreaId(),
+                        row.isAuthorized(), row.getAccessType());
+            }
+        }
+
+        void recognition(RecognitionRow row) {
+            if (format == Format.NDJSON) {
+                json(row);
+            } else {
+                csv(row.getId(), row.getTimestamp(), row.getAccessLogId(), row.getEmployeeId(),
+                        row.getSegmentationModelId(), row.getRecognitionModelId(), row.getConfidence());
+            }
+        }
+
+        long finish() throws IOException {
+            writer.flush();
+            return rows;
+        }
+
+        private void json(Object row) {
+            try {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+                written();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void csv(Object... values) {
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(escape(values[i]));
+                }
+                writer.write('\n');
+                written();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void written() throws IOException {
+            if (++rows % flushRows == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,429 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.journal.AccessEvent;
+import com.example.fingerprint_backend.journal.AccessEventJournal;
+import com.example.fingerprint_backend.model.AccessLog;
+import com.example.fingerprint_backend.model.Recognition;
+import com.example.fingerprint_backend.repository.AccessLogRepository;
+import com.example.fingerprint_backend.repository.RecognitionRepository;
+import com.example.fingerprint_backend.util.TimeOrderedUuid;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists gate decisions without keeping the scan waiting for MySQL.
+ * <p>
+ * With {@code fingerprint.journal.enabled}, {@link #record} appends the
+ * {@code AccessLog}/{@code Recognition} pair to the {@link AccessEventJournal}
+ * and hands it to a background writer, which inserts queued events in JDBC
+ * batches of up to {@code fingerprint.journal.batch-size} and then advances the
+ * journal checkpoint. On startup, events after the checkpoint are replayed
+ * before the application accepts requests. When the queue is full, callers wait
+ * up to {@code fingerprint.journal.enqueue-timeout-millis} for the writer, and
+ * the wait is counted as backpressure; after that the scan is rejected.
+ * <p>
+ * If a batch insert fails, its rows are retried one at a time. A row the
+ * database rejects outright, such as one whose area, employee or model has
+ * since been deleted, is moved to the {@code dead-letter} journal next to the
+ * main one, so it cannot hold up the events queued behind it. A row that fails
+ * for any other reason, typically an unreachable database, is retried every
+ * second together with everything after it.
+ * <p>
+ * With the journal disabled, both rows are saved synchronously in a short
+ * transaction of their own.
+ * Either way, the {@link AttendanceRollupService} counters are updated with
+ * the access logs.
+ */
+@Slf4j
+@Service
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class AccessLogWriter {
+
+    private static final String INSERT_ACCESS_LOG =
+            "INSERT INTO access_log (id, area_id, employee_id, timestamp, authorized, access_type) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_RECOGNITION =
+            "INSERT INTO recognition (id, access_log_id, employee_id, fingerprint_region_model_id, "
+                    + "fingerprint_recognition_model_id, timestamp, confidence) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Value("${fingerprint.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fingerprint.journal.dir:data/journal}")
+    private String journalDir;
+
+    @Value("${fingerprint.journal.segment-bytes:8388608}")
+    private int segmentBytes;
+
+    @Value("${fingerprint.journal.sync-writes:false}")
+    private boolean syncWrites;
+
+    @Value("${fingerprint.journal.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${fingerprint.journal.batch-size:500}")
+    private int batchSize;
+
+    @Value("${fingerprint.journal.flush-interval-millis:50}")
+    private long flushIntervalMillis;
+
+    @Value("${fingerprint.journal.enqueue-timeout-millis:500}")
+    private long enqueueTimeoutMillis;
+
+    private final AccessLogRepository accessLogRepository;
+    private final RecognitionRepository recognitionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AttendanceRollupService attendanceRollupService;
+    private final RecognitionMetrics recognitionMetrics;
+
+    private final Object appendLock = new Object();
+    private AccessEventJournal journal;
+    private AccessEventJournal deadLetters;
+    private BlockingQueue<AccessEventJournal.Entry> queue;
+    // one permit per free queue slot, taken before appending so a full queue never blocks under appendLock
+    private Semaphore slots;
+    private Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final LongAdder backpressureNanos = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final AtomicLong lastBatchMicros = new AtomicLong();
+
+    @PostConstruct
+    public void start() throws Exception {
+        if (!enabled) {
+            return;
+        }
+        journal = AccessEventJournal.open(Paths.get(journalDir), segmentBytes, syncWrites);
+        deadLetters = AccessEventJournal.open(Paths.get(journalDir, "dead-letter"), segmentBytes, true);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        slots = new Semaphore(queueCapacity);
+
+        List<AccessEventJournal.Entry> pending = journal.uncommitted();
+        if (!pending.isEmpty()) {
+            replay(pending);
+        }
+
+        running = true;
+        writer = new Thread(this::runWriter, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            // closing under a writer mid-batch would fail its commit and replay the batch as duplicates
+            log.warn("Access log writer is still running after 10 s, leaving the journals open; "
+                    + "events it has not committed are replayed on the next start");
+            return;
+        }
+        journal.close();
+        deadLetters.close();
+    }
+
+    /**
+     * Persists the access log and, if present, its recognition. Returns the
+     * access log with its id assigned.
+     *
+     * @throws RejectedExecutionException if the writer's queue stays full for
+     *                                    the enqueue timeout
+     */
+    public AccessLog record(AccessLog accessLog, Recognition recognition) throws Exception {
+        Tags tags = recognitionMetrics.tags(accessLog.getArea(), accessLog.getAccessType(),
+                recognition != null ? recognition.getFingerprintSegmentationModel() : null,
+                recognition != null ? recognition.getFingerprintRecognitionModel() : null);
+        long start = System.nanoTime();
+
+        if (!enabled) {
+            // the recognition pipeline calls this outside any transaction, so these cover just these writes
+            AccessLog saved = transactionTemplate.execute(status -> {
+                AccessLog persisted = accessLogRepository.save(accessLog);
+                attendanceRollupService.record(List.of(toEvent(persisted).build()));
+                return persisted;
+            });
+            recognitionMetrics.recordPhase(RecognitionMetrics.ACCESS_LOG_SAVE, tags, System.nanoTime() - start);
+            if (recognition != null) {
+                long recognitionStart = System.nanoTime();
+                recognition.setAccessLog(saved);
+                try {
+                    // a transaction of its own, so a failed recognition does not roll back the access log
+                    transactionTemplate.executeWithoutResult(status -> recognitionRepository.save(recognition));
+                    recognitionMetrics.recordPhase(RecognitionMetrics.RECOGNITION_SAVE, tags,
+                            System.nanoTime() - recognitionStart);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to save the recognition for access log {}: {}", saved.getId(), e.getMessage());
+                }
+            }
+            return saved;
+        }
+
+        accessLog.setId(TimeOrderedUuid.next());
+        AccessEvent.AccessEventBuilder event = toEvent(accessLog);
+        if (recognition != null) {
+            recognition.setId(TimeOrderedUuid.next());
+            event.recognitionId(recognition.getId())
+                    .segmentationModelId(recognition.getFingerprintSegmentationModel() != null
+                            ? recognition.getFingerprintSegmentationModel().getId() : null)
+                    .recognitionModelId(recognition.getFingerprintRecognitionModel() != null
+                            ? recognition.getFingerprintRecognitionModel().getId() : null)
+                    .confidence(recognition.getConfidence());
+        }
+
+        if (!slots.tryAcquire()) {
+            long waitStart = System.nanoTime();
+            backpressureWaits.increment();
+            boolean acquired = slots.tryAcquire(enqueueTimeoutMillis, TimeUnit.MILLISECONDS);
+            backpressureNanos.add(System.nanoTime() - waitStart);
+            if (!acquired) {
+                rejected.increment();
+                throw new RejectedExecutionException("Access log writer is falling behind");
+            }
+        }
+
+        // journal and queue order must agree, since the writer checkpoints the last position it inserted
+        synchronized (appendLock) {
+            AccessEvent built = event.build();
+            AccessEventJournal.Entry entry;
+            try {
+                entry = new AccessEventJournal.Entry(built, journal.append(built));
+            } catch (Exception e) {
+                slots.release();
+                throw e;
+            }
+            // cannot fail: the slot taken above is only returned once the writer has dequeued
+            queue.add(entry);
+        }
+        recognitionMetrics.recordPhase(RecognitionMetrics.JOURNAL_APPEND, tags, System.nanoTime() - start);
+        if (recognition != null) {
+            recognition.setAccessLog(accessLog);
+        }
+        return accessLog;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (enabled) {
+            stats.put("queued", queue.size());
+            stats.put("journalBacklogBytes", journal.uncommittedBytes());
+        }
+        stats.put("batches", batches.sum());
+        stats.put("rows", rows.sum());
+        stats.put("failedBatches", failures.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("lastBatchMillis", lastBatchMicros.get() / 1000.0);
+        stats.put("backpressureWaits", backpressureWaits.sum());
+        stats.put("backpressureMillis", backpressureNanos.sum() / 1_000_000.0);
+        return stats;
+    }
+
+    private void runWriter() {
+        List<AccessEventJournal.Entry> batch = new ArrayList<>(batchSize);
+        while (running || !batch.isEmpty() || !queue.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    AccessEventJournal.Entry first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    slots.release(batch.size());
+                }
+                flush(batch);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                log.warn("Failed to write {} access events, retrying", batch.size());
+            } catch (InterruptedException e) {
+                if (!running && batch.isEmpty() && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            } catch (Exception e) {
+                log.warn("Failed to write {} access events, retrying: {}", batch.size(), e.getMessage());
+            }
+            // keep what is left of the batch and retry; the events are safe in the journal meanwhile
+            failures.increment();
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException interrupted) {
+                if (!running) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the batch and removes the entries that are now in the database or
+     * dead-lettered; whatever is left failed and should be retried.
+     */
+    private void flush(List<AccessEventJournal.Entry> batch) throws Exception {
+        long start = System.nanoTime();
+        int written = write(batch);
+        if (written == 0) {
+            return;
+        }
+        journal.commit(batch.get(written - 1).getPosition());
+        batch.subList(0, written).clear();
+
+        batches.increment();
+        rows.add(written);
+        long nanos = System.nanoTime() - start;
+        lastBatchMicros.set(nanos / 1000);
+        recognitionMetrics.recordWriterBatch(nanos);
+    }
+
+    /**
+     * Inserts the entries, falling back to one row at a time if the batch
+     * fails. Returns how many leading entries were inserted or dead-lettered;
+     * the rest start at a row that failed for a reason other than the data.
+     */
+    private int write(List<AccessEventJournal.Entry> entries) throws Exception {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<AccessEvent> events = new ArrayList<>(entries.size());
+        for (AccessEventJournal.Entry entry : entries) {
+            events.add(entry.getEvent());
+        }
+        try {
+            insert(events);
+            return entries.size();
+        } catch (DataAccessException e) {
+            log.warn("Batch of {} access events failed, retrying row by row: {}", events.size(), e.getMessage());
+        }
+
+        for (int i = 0; i < events.size(); i++) {
+            AccessEvent event = events.get(i);
+            try {
+                insert(List.of(event));
+            } catch (DuplicateKeyException e) {
+                // inserted by an earlier attempt whose checkpoint was not written
+            } catch (DataIntegrityViolationException e) {
+                deadLetters.append(event);
+                deadLettered.increment();
+                log.error("Access event {} (area {}, employee {}) cannot be inserted, moved to the dead-letter journal: {}",
+                        event.getAccessLogId(), event.getAreaId(), event.getEmployeeId(), e.getMessage());
+            } catch (DataAccessException e) {
+                log.warn("Access event {} failed, retrying later: {}", event.getAccessLogId(), e.getMessage());
+                return i;
+            }
+        }
+        return events.size();
+    }
+
+    private void replay(List<AccessEventJournal.Entry> pending) throws Exception {
+        log.info("Replaying {} access events from the journal", pending.size());
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<AccessEventJournal.Entry> chunk = pending.subList(from, Math.min(pending.size(), from + batchSize));
+            List<byte[]> ids = new ArrayList<>(chunk.size());
+            for (AccessEventJournal.Entry entry : chunk) {
+                ids.add(TimeOrderedUuid.toBytes(entry.getEvent().getAccessLogId()));
+            }
+            // events flushed just before a crash may already be in the database
+            Set<UUID> existing = new HashSet<>(namedParameterJdbcTemplate.query(
+                    "SELECT id FROM access_log WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", ids),
+                    (resultSet, row) -> TimeOrderedUuid.fromBytes(resultSet.getBytes(1))));
+
+            List<AccessEventJournal.Entry> missing = new ArrayList<>(chunk.size());
+            for (AccessEventJournal.Entry entry : chunk) {
+                if (!existing.contains(entry.getEvent().getAccessLogId())) {
+                    missing.add(entry);
+                }
+            }
+            if (write(missing) < missing.size()) {
+                throw new IllegalStateException("Could not replay the access event journal; the database is unavailable");
+            }
+            journal.commit(chunk.get(chunk.size() - 1).getPosition());
+        }
+    }
+
+    private void insert(List<AccessEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<AccessEvent> recognitions = new ArrayList<>(events.size());
+        for (AccessEvent event : events) {
+            if (event.getRecognitionId() != null) {
+                recognitions.add(event);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_ACCESS_LOG, events, events.size(), (statement, event) -> {
+                statement.setBytes(1, TimeOrderedUuid.toBytes(event.getAccessLogId()));
+                statement.setString(2, event.getAreaId());
+                statement.setString(3, event.getEmployeeId());
+                statement.setObject(4, event.getTimestamp());
+                statement.setBoolean(5, event.isAuthorized());
+                statement.setString(6, event.getAccessType());
+            });
+            jdbcTemplate.batchUpdate(INSERT_RECOGNITION, recognitions, recognitions.size(), (statement, event) -> {
+                statement.setBytes(1, TimeOrderedUuid.toBytes(event.getRecognitionId()));
+                statement.setBytes(2, TimeOrderedUuid.toBytes(event.getAccessLogId()));
+                statement.setString(3, event.getEmployeeId());
+                statement.setString(4, event.getSegmentationModelId());
+                statement.setString(5, event.getRecognitionModelId());
+                statement.setObject(6, event.getTimestamp());
+                statement.setFloat(7, event.getConfidence());
+            });
+            attendanceRollupService.record(events);
+        });
+    }
+
+    private static AccessEvent.AccessEventBuilder toEvent(AccessLog accessLog) {
+        return AccessEvent.builder()
+                .accessLogId(accessLog.getId())
+                .areaId(accessLog.getArea().getId())
+                .employeeId(accessLog.getEmployee() != null ? accessLog.getEmployee().getId() : null)
+                .timestamp(accessLog.getTimestamp())
+                .authorized(accessLog.isAuthorized())
+                .accessType(accessLog.getAccessType());
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.InferenceRequest;
+import com.example.fingerprint_backend.model.InferenceResponse;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The single HTTP client for the Python AI backend.
+ * <p>
+ * Requests go through a shared JDK {@link HttpClient}, which keeps HTTP/1.1
+ * connections alive between calls, with connect and read deadlines from
+ * {@code fingerprint.api.connect-timeout} and {@code fingerprint.api.read-timeout}.
+ * A circuit breaker opens after {@code fingerprint.api.breaker.failure-threshold}
+ * consecutive failures; while it is open, calls fail immediately with
+ * {@link AiBackendUnavailableException} instead of waiting on a stalled worker.
+ * After {@code fingerprint.api.breaker.open-duration} a single probe request is
+ * let through to decide whether to close it again.
+ * <p>
+ * {@code fingerprint.api.url} may list several inference workers, comma
+ * separated. Model-bound calls name their worker (see {@link ModelRegistry});
+ * everything else goes to the first one. Each worker has its own breaker.
+ * <p>
+ * With {@code fingerprint.api.protocol=cbor}, recognize and embed
+ * calls use the binary {@code /api/v2} routes through {@link #exchange}: an
+ * {@link InferenceRequest} with raw image bytes in, an {@link InferenceResponse}
+ * with float32 embeddings out, both CBOR-encoded by one shared mapper straight
+ * to and from those types. The default, {@code json}, keeps the multipart/JSON
+ * routes. A CBOR frame holds its images on the heap, so a single upload larger
+ * than {@code fingerprint.api.cbor.max-image-size} still streams as multipart.
+ */
+@Slf4j
+@Component
+public class AiBackendClient {
+
+    private final List<String> workers;
+    private final boolean binaryProtocol;
+    private final long maxBinaryImageBytes;
+    private final RestTemplate restTemplate;
+    private final Map<String, CircuitBreaker> breakers = new LinkedHashMap<>();
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    public AiBackendClient(
+            @Value("${fingerprint.api.url}") List<String> baseUrls,
+            @Value("${fingerprint.api.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${fingerprint.api.read-timeout:30s}") Duration readTimeout,
+            @Value("${fingerprint.api.client-threads:8}") int clientThreads,
+            @Value("${fingerprint.api.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${fingerprint.api.breaker.open-duration:10s}") Duration openDuration,
+            @Value("${fingerprint.api.protocol:json}") String protocol,
+            @Value("${fingerprint.api.cbor.max-image-size:1MB}") DataSize maxBinaryImageSize) {
+        List<String> workers = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            String worker = baseUrl.trim();
+            workers.add(worker.endsWith("/") ? worker.substring(0, worker.length() - 1) : worker);
+        }
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("fingerprint.api.url must name at least one AI backend");
+        }
+        this.workers = List.copyOf(workers);
+        if (!protocol.equals("json") && !protocol.equals("cbor")) {
+            throw new IllegalArgumentException("fingerprint.api.protocol must be json or cbor, not " + protocol);
+        }
+        this.binaryProtocol = protocol.equals("cbor");
+        this.maxBinaryImageBytes = maxBinaryImageSize.toBytes();
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .executor(Executors.newFixedThreadPool(clientThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "ai-backend-client");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+
+        this.restTemplate = new RestTemplate(requestFactory);
+        CBORMapper cborMapper = new CBORMapper();
+        cborMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        restTemplate.getMessageConverters().add(new MappingJackson2CborHttpMessageConverter(cborMapper));
+        for (String worker : this.workers) {
+            breakers.put(worker, new CircuitBreaker(failureThreshold, openDuration.toMillis()));
+        }
+    }
+
+    public List<String> workers() {
+        return workers;
+    }
+
+    /**
+     * Whether model-bound calls should use the CBOR {@code /api/v2} routes.
+     */
+    public boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+
+    /**
+     * Whether a single {@code image} goes over the CBOR routes: the protocol is
+     * cbor and the image is small enough to copy into a frame.
+     */
+    public boolean isBinaryProtocol(Resource image) throws IOException {
+        return binaryProtocol && image.contentLength() <= maxBinaryImageBytes;
+    }
+
+    /**
+     * Whether a call to {@code worker} would be let through now, i.e. its
+     * circuit is closed or due for a probe.
+     */
+    public boolean isAvailable(String worker) {
+        CircuitBreaker breaker = breakers.get(worker);
+        return breaker != null && breaker.isAvailable();
+    }
+
+    public String url(String path) {
+        return workers.get(0) + path;
+    }
+
+    public <T> ResponseEntity<T> post(String path, Object request, Class<T> responseType) {
+        return post(workers.get(0), path, request, responseType);
+    }
+
+    /**
+     * @param worker one of {@link #workers()}
+     */
+    public <T> ResponseEntity<T> post(String worker, String path, Object request, Class<T> responseType) {
+        return execute(worker, path, () -> restTemplate.postForEntity(worker + path, request, responseType));
+    }
+
+    /**
+     * Posts a CBOR {@link InferenceRequest} to an {@code /api/v2} route of
+     * {@code worker} and decodes the reply.
+     */
+    public InferenceResponse exchange(String worker, String path, InferenceRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_CBOR);
+        headers.setAccept(List.of(MediaType.APPLICATION_CBOR));
+        InferenceResponse response = post(worker, path, new HttpEntity<>(request, headers), InferenceResponse.class)
+                .getBody();
+        if (response == null) {
+            throw new IllegalStateException("Empty response from " + worker + path);
+        }
+        return response;
+    }
+
+    public static InferenceRequest inferenceRequest(
+            String segmentationModelPath, String recognitionModelPath, List<Resource> images) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(images.size());
+        for (Resource image : images) {
+            encoded.add(image instanceof ByteArrayResource bytes ? bytes.getByteArray() : image.getContentAsByteArray());
+        }
+        return new InferenceRequest(segmentationModelPath, recognitionModelPath, encoded);
+    }
+
+    /**
+     * @param uri full URI, normally built from {@link #url(String)} with query parameters
+     */
+    public <T> ResponseEntity<T> get(String path, String uri, Class<T> responseType) {
+        return execute(workers.get(0), path, () -> restTemplate.getForEntity(uri, responseType));
+    }
+
+    public <T> ResponseEntity<T> get(String path, Class<T> responseType) {
+        return get(path, url(path), responseType);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> circuits = new LinkedHashMap<>();
+        breakers.forEach((worker, breaker) -> circuits.put(worker, breaker.state()));
+        stats.put("circuits", circuits);
+        Map<String, Object> perEndpoint = new LinkedHashMap<>();
+        endpoints.forEach((path, endpoint) -> perEndpoint.put(path, endpoint.snapshot()));
+        stats.put("endpoints", perEndpoint);
+        return stats;
+    }
+
+    private <T> ResponseEntity<T> execute(String worker, String path, Supplier<ResponseEntity<T>> call) {
+        EndpointStats endpoint = endpoints.computeIfAbsent(path, key -> new EndpointStats());
+        CircuitBreaker breaker = breakers.get(worker);
+        if (breaker == null) {
+            throw new IllegalArgumentException("Unknown AI backend worker: " + worker);
+        }
+        long retryAfterMillis = breaker.acquire();
+        if (retryAfterMillis > 0) {
+            endpoint.rejected.increment();
+            throw new AiBackendUnavailableException("AI backend is unavailable", (retryAfterMillis + 999) / 1000);
+        }
+
+        long start = System.nanoTime();
+        try {
+            ResponseEntity<T> response = call.get();
+            breaker.onSuccess();
+            endpoint.record(System.nanoTime() - start, false);
+            return response;
+        } catch (HttpClientErrorException e) {
+            // a 4xx means the backend answered; it says nothing about its health
+            breaker.onSuccess();
+            endpoint.record(System.nanoTime() - start, true);
+            throw e;
+        } catch (RuntimeException e) {
+            if (breaker.onFailure()) {
+                log.warn("AI backend circuit for {} opened after failure on {}: {}", worker, path, e.getMessage());
+            }
+            endpoint.record(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    private static final class EndpointStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+        private void record(long nanos, boolean failed) {
+            calls.increment();
+            if (failed) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        private Map<String, Object> snapshot() {
+            long n = calls.sum();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("calls", n);
+            snapshot.put("failures", failures.sum());
+            snapshot.put("rejected", rejected.sum());
+            snapshot.put("meanLatencyMillis", n == 0 ? 0.0 : totalNanos.sum() / (n * 1_000_000.0));
+            snapshot.put("maxLatencyMillis", maxNanos.get() / 1_000_000.0);
+            return snapshot;
+        }
+    }
+
+    private static final class CircuitBreaker {
+        private enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final int failureThreshold;
+        private final long openMillis;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+
+        private CircuitBreaker(int failureThreshold, long openMillis) {
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+        }
+
+        /**
+         * @return 0 if the call may proceed, otherwise the milliseconds until the next probe
+         */
+        private synchronized long acquire() {
+            if (state == State.CLOSED) {
+                return 0;
+            }
+            long remaining = openedAt + openMillis - System.currentTimeMillis();
+            if (state == State.OPEN && remaining <= 0) {
+                state = State.HALF_OPEN;
+                return 0;
+            }
+            return Math.max(remaining, 1);
+        }
+
+        private synchronized boolean isAvailable() {
+            return state != State.OPEN || openedAt + openMillis <= System.currentTimeMillis();
+        }
+
+        private synchronized void onSuccess() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        /**
+         * @return whether this failure opened the circuit
+         */
+        private synchronized boolean onFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized String state() {
+            return state.name();
+        }
+    }
+}
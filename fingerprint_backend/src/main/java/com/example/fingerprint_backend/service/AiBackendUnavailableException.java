@@ -0,0 +1,18 @@
+package com.example.fingerprint_backend.service;
+
+/**
+ * Thrown without contacting the AI backend while its circuit breaker is open.
+ */
+public class AiBackendUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AiBackendUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.BulkAccessResult;
+import com.example.fingerprint_backend.util.TimeOrderedUuid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grants and revokes area access for many (employee, area) pairs at once.
+ * <p>
+ * A request costs a fixed number of set-based statements instead of two round
+ * trips per pair: the employee and area ids are validated with one
+ * {@code IN} query each, the pairs that already exist are found with one query
+ * per {@code fingerprint.access.bulk.chunk-size} employees, and only the
+ * difference is inserted or deleted, in JDBC batches, in a single transaction.
+ * The {@link AuthorizationMatrix} is updated with all changed pairs at once after
+ * the transaction commits.
+ */
+@Service
+@RequiredArgsConstructor
+public class AreaAccessBulkService {
+
+    private static final String INSERT =
+            "INSERT INTO area_access (id, area_id, employee_id, timestamp) VALUES (?, ?, ?, ?)";
+    private static final String DELETE =
+            "DELETE FROM area_access WHERE employee_id = ? AND area_id = ?";
+
+    @Value("${fingerprint.access.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthorizationMatrix authorizationMatrix;
+
+    /**
+     * Every listed employee with every listed area, or with all areas when
+     * {@code areaIds} is null.
+     */
+    public List<Map.Entry<String, String>> crossProduct(Collection<String> employeeIds, Collection<String> areaIds) {
+        Collection<String> areas = areaIds != null
+                ? areaIds
+                : jdbcTemplate.queryForList("SELECT id FROM area", String.class);
+        List<Map.Entry<String, String>> pairs = new ArrayList<>(employeeIds.size() * areas.size());
+        for (String employeeId : employeeIds) {
+            for (String areaId : areas) {
+                pairs.add(Map.entry(employeeId, areaId));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Reads {@code employeeId,areaId} lines. A header line and blank lines are
+     * skipped; fields may be quoted.
+     *
+     * @throws IllegalArgumentException for a line that is not two fields
+     */
+    public List<Map.Entry<String, String>> parseCsv(InputStream csv) throws IOException {
+        List<Map.Entry<String, String>> pairs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            for (String line; (line = reader.readLine()) != null; ) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != 2) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": expected employeeId,areaId");
+                }
+                String employeeId = unquote(fields[0]);
+                String areaId = unquote(fields[1]);
+                if (lineNumber == 1 && employeeId.replace("_", "").equalsIgnoreCase("employeeid")) {
+                    continue;
+                }
+                if (employeeId.isEmpty() || areaId.isEmpty()) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": empty employee or area id");
+                }
+                pairs.add(Map.entry(employeeId, areaId));
+            }
+        }
+        return pairs;
+    }
+
+    public BulkAccessResult grant(Collection<Map.Entry<String, String>> pairs) {
+        return apply(pairs, true);
+    }
+
+    public BulkAccessResult revoke(Collection<Map.Entry<String, String>> pairs) {
+        return apply(pairs, false);
+    }
+
+    private BulkAccessResult apply(Collection<Map.Entry<String, String>> requested, boolean grant) {
+        Set<Map.Entry<String, String>> pairs = new LinkedHashSet<>(requested);
+        Set<String> employeeIds = new LinkedHashSet<>();
+        Set<String> areaIds = new LinkedHashSet<>();
+        for (Map.Entry<String, String> pair : pairs) {
+            employeeIds.add(pair.getKey());
+            areaIds.add(pair.getValue());
+        }
+
+        return transactionTemplate.execute(status -> {
+            Set<String> knownEmployees = existing("SELECT id FROM employee WHERE id IN (:ids)", employeeIds);
+            Set<String> knownAreas = existing("SELECT id FROM area WHERE id IN (:ids)", areaIds);
+            List<String> unknownEmployees = employeeIds.stream().filter(id -> !knownEmployees.contains(id)).toList();
+            List<String> unknownAreas = areaIds.stream().filter(id -> !knownAreas.contains(id)).toList();
+
+            Set<Map.Entry<String, String>> granted = grantedPairs(knownEmployees, knownAreas);
+            List<Map.Entry<String, String>> changes = new ArrayList<>();
+            for (Map.Entry<String, String> pair : pairs) {
+                if (knownEmployees.contains(pair.getKey()) && knownAreas.contains(pair.getValue())
+                        && granted.contains(pair) != grant) {
+                    changes.add(pair);
+                }
+            }
+
+            if (grant) {
+                LocalDateTime now = LocalDateTime.now();
+                jdbcTemplate.batchUpdate(INSERT, changes, chunkSize, (statement, pair) -> {
+                    statement.setBytes(1, TimeOrderedUuid.toBytes(TimeOrderedUuid.next()));
+                    statement.setString(2, pair.getValue());
+                    statement.setString(3, pair.getKey());
+                    statement.setObject(4, now);
+                });
+            } else {
+                jdbcTemplate.batchUpdate(DELETE, changes, chunkSize, (statement, pair) -> {
+                    statement.setString(1, pair.getKey());
+                    statement.setString(2, pair.getValue());
+                });
+            }
+            authorizationMatrix.updateAllAfterCommit(changes, grant);
+
+            int valid = (int) pairs.stream()
+                    .filter(pair -> knownEmployees.contains(pair.getKey()) && knownAreas.contains(pair.getValue()))
+                    .count();
+            return new BulkAccessResult(pairs.size(), changes.size(), valid - changes.size(), unknownEmployees, unknownAreas);
+        });
+    }
+
+    private Set<String> existing(String sql, Collection<String> ids) {
+        Set<String> found = new HashSet<>();
+        for (List<String> chunk : chunks(ids)) {
+            found.addAll(namedParameterJdbcTemplate.queryForList(sql, new MapSqlParameterSource("ids", chunk), String.class));
+        }
+        return found;
+    }
+
+    private Set<Map.Entry<String, String>> grantedPairs(Collection<String> employeeIds, Collection<String> areaIds) {
+        Set<Map.Entry<String, String>> granted = new HashSet<>();
+        if (employeeIds.isEmpty() || areaIds.isEmpty()) {
+            return granted;
+        }
+        for (List<String> chunk : chunks(employeeIds)) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("employees", chunk)
+                    .addValue("areas", areaIds);
+            namedParameterJdbcTemplate.query(
+                    "SELECT employee_id, area_id FROM area_access WHERE employee_id IN (:employees) AND area_id IN (:areas)",
+                    parameters,
+                    resultSet -> {
+                        granted.add(Map.entry(resultSet.getString(1), resultSet.getString(2)));
+                    });
+        }
+        return granted;
+    }
+
+    private List<List<String>> chunks(Collection<String> ids) {
+        List<String> all = new ArrayList<>(ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + chunkSize)));
+        }
+        return chunks;
+    }
+
+    private static String unquote(String field) {
+        String value = field.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).replace("\"\"", "\"").trim();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.journal.AccessEvent;
+import com.example.fingerprint_backend.model.Employee;
+import com.example.fingerprint_backend.model.EmployeeStatistics;
+import com.example.fingerprint_backend.repository.EmployeeRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-employee, per-area, per-day access counters with first and last seen
+ * times, kept in {@code attendance_rollup} so that attendance statistics sum a
+ * handful of rollup rows instead of scanning {@code access_log}.
+ * <p>
+ * {@link #record} is called by {@link AccessLogWriter} in the transaction that
+ * inserts the access logs, so each log is counted exactly once, including
+ * logs replayed from the journal. The last {@code fingerprint.rollup.hot-days}
+ * days are also held in memory, per employee and day, and are updated once that
+ * transaction commits; statistics for those days never touch the database.
+ * <p>
+ * Full days of a range are answered from the rollups. The partial first and
+ * last day of a range that does not start or end at midnight are counted from
+ * the raw logs, which the timestamp index bounds to at most two days. Logs
+ * without an employee or area are not rolled up. On first start with existing
+ * logs, the table is backfilled from {@code access_log}.
+ */
+@Slf4j
+@Service
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class AttendanceRollupService {
+
+    private static final String UPSERT =
+            "INSERT INTO attendance_rollup (employee_id, area_id, access_date, access_count, authorized_count, first_seen, last_seen) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                    + "access_count = access_count + VALUES(access_count), "
+                    + "authorized_count = authorized_count + VALUES(authorized_count), "
+                    + "first_seen = LEAST(first_seen, VALUES(first_seen)), "
+                    + "last_seen = GREATEST(last_seen, VALUES(last_seen))";
+    private static final String BACKFILL =
+            "INSERT INTO attendance_rollup (employee_id, area_id, access_date, access_count, authorized_count, first_seen, last_seen) "
+                    + "SELECT employee_id, area_id, CAST(timestamp AS DATE), COUNT(*), "
+                    + "SUM(CASE WHEN authorized THEN 1 ELSE 0 END), MIN(timestamp), MAX(timestamp) "
+                    + "FROM access_log "
+                    + "WHERE employee_id IS NOT NULL AND area_id IS NOT NULL AND timestamp IS NOT NULL "
+                    + "GROUP BY employee_id, area_id, CAST(timestamp AS DATE)";
+    private static final String SUM_BY_EMPLOYEE =
+            "SELECT employee_id, SUM(access_count), MIN(first_seen), MAX(last_seen) FROM attendance_rollup "
+                    + "WHERE (? IS NULL OR access_date >= ?) AND (? IS NULL OR access_date <= ?) "
+                    + "GROUP BY employee_id";
+
+    @Value("${fingerprint.rollup.hot-days:35}")
+    private int hotDays;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmployeeRepository employeeRepository;
+    private final AccessLogArchiveService accessLogArchiveService;
+
+    private final Map<LocalDate, Map<String, Totals>> hot = new ConcurrentHashMap<>();
+    private volatile LocalDate hotFrom;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Long rollups = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM attendance_rollup", Long.class);
+            if (rollups != null && rollups == 0) {
+                int rows = jdbcTemplate.update(BACKFILL);
+                if (rows > 0) {
+                    log.info("Backfilled {} attendance rollups from access_log", rows);
+                }
+            }
+        });
+        loadHot();
+    }
+
+    /**
+     * Adds the events to the rollups. Within a transaction the hot tier is
+     * updated after commit.
+     */
+    public void record(List<AccessEvent> events) {
+        Map<Key, Delta> deltas = new LinkedHashMap<>();
+        for (AccessEvent event : events) {
+            if (event.getEmployeeId() == null || event.getAreaId() == null || event.getTimestamp() == null) {
+                continue;
+            }
+            Key key = new Key(event.getEmployeeId(), event.getAreaId(), event.getTimestamp().toLocalDate());
+            deltas.computeIfAbsent(key, k -> new Delta()).add(event);
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Key, Delta>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT, rows, rows.size(), (statement, row) -> {
+            statement.setString(1, row.getKey().employeeId);
+            statement.setString(2, row.getKey().areaId);
+            statement.setObject(3, row.getKey().date);
+            statement.setLong(4, row.getValue().count);
+            statement.setLong(5, row.getValue().authorized);
+            statement.setObject(6, row.getValue().first);
+            statement.setObject(7, row.getValue().last);
+        });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(rows);
+                }
+            });
+        } else {
+            publish(rows);
+        }
+    }
+
+    /**
+     * Removes every rollup, for when the access logs are wiped.
+     */
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM attendance_rollup");
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    hot.clear();
+                }
+            });
+        } else {
+            hot.clear();
+        }
+    }
+
+    /**
+     * Accesses per employee between the two instants, both inclusive and
+     * either open. Like the query it replaces, every employee is listed when
+     * the range is unbounded, and only employees with accesses otherwise.
+     */
+    public List<EmployeeStatistics> getEmployeeStatistics(LocalDateTime startDate, LocalDateTime endDate) throws IOException {
+        LocalDate firstFullDay = startDate == null ? null
+                : startDate.toLocalTime().equals(LocalTime.MIDNIGHT) ? startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+        LocalDate lastFullDay = endDate == null ? null
+                : endDate.toLocalTime().equals(LocalTime.MAX) ? endDate.toLocalDate() : endDate.toLocalDate().minusDays(1);
+
+        Map<String, Totals> totals = new HashMap<>();
+        if (firstFullDay != null && lastFullDay != null && firstFullDay.isAfter(lastFullDay)) {
+            addRaw(totals, startDate, endDate, true);
+        } else {
+            addFullDays(totals, firstFullDay, lastFullDay);
+            if (startDate != null && startDate.isBefore(firstFullDay.atStartOfDay())) {
+                addRaw(totals, startDate, firstFullDay.atStartOfDay(), false);
+            }
+            if (endDate != null && !endDate.isBefore(lastFullDay.plusDays(1).atStartOfDay())) {
+                addRaw(totals, lastFullDay.plusDays(1).atStartOfDay(), endDate, true);
+            }
+        }
+
+        boolean unbounded = startDate == null && endDate == null;
+        List<EmployeeStatistics> statistics = new ArrayList<>();
+        for (Employee employee : employeeRepository.findAll()) {
+            Totals employeeTotals = totals.get(employee.getId());
+            if (employeeTotals != null) {
+                statistics.add(new EmployeeStatistics(employee.getId(), employee.getFullName(),
+                        employeeTotals.count, employeeTotals.first, employeeTotals.last));
+            } else if (unbounded) {
+                statistics.add(new EmployeeStatistics(employee.getId(), employee.getFullName(), 0, null, null));
+            }
+        }
+        return statistics;
+    }
+
+    @Scheduled(cron = "${fingerprint.rollup.evict-cron:0 5 0 * * *}")
+    public void evictCold() {
+        LocalDate from = LocalDate.now().minusDays(hotDays - 1);
+        hotFrom = from;
+        hot.keySet().removeIf(date -> date.isBefore(from));
+    }
+
+    private void loadHot() {
+        LocalDate from = LocalDate.now().minusDays(hotDays - 1);
+        hot.clear();
+        jdbcTemplate.query(
+                "SELECT employee_id, access_date, SUM(access_count), MIN(first_seen), MAX(last_seen) "
+                        + "FROM attendance_rollup WHERE access_date >= ? GROUP BY employee_id, access_date",
+                resultSet -> {
+                    hot.computeIfAbsent(resultSet.getObject(2, LocalDate.class), date -> new ConcurrentHashMap<>())
+                            .put(resultSet.getString(1), new Totals(resultSet.getLong(3),
+                                    toLocalDateTime(resultSet.getTimestamp(4)), toLocalDateTime(resultSet.getTimestamp(5))));
+                },
+                from);
+        hotFrom = from;
+    }
+
+    private void publish(List<Map.Entry<Key, Delta>> rows) {
+        LocalDate from = hotFrom;
+        for (Map.Entry<Key, Delta> row : rows) {
+            LocalDate date = row.getKey().date;
+            if (from == null || date.isBefore(from)) {
+                continue;
+            }
+            Delta delta = row.getValue();
+            hot.computeIfAbsent(date, d -> new ConcurrentHashMap<>())
+                    .merge(row.getKey().employeeId, new Totals(delta.count, delta.first, delta.last), Totals::plus);
+        }
+    }
+
+    private void addFullDays(Map<String, Totals> totals, LocalDate firstDay, LocalDate lastDay) {
+        LocalDate from = hotFrom;
+        // days before the hot tier come from the table
+        LocalDate coldLast = lastDay == null || !lastDay.isBefore(from) ? from.minusDays(1) : lastDay;
+        if (firstDay == null || !firstDay.isAfter(coldLast)) {
+            jdbcTemplate.query(SUM_BY_EMPLOYEE, resultSet -> {
+                add(totals, resultSet);
+            }, firstDay, firstDay, coldLast, coldLast);
+        }
+        for (Map.Entry<LocalDate, Map<String, Totals>> day : hot.entrySet()) {
+            LocalDate date = day.getKey();
+            if (date.isBefore(from)
+                    || (firstDay != null && date.isBefore(firstDay))
+                    || (lastDay != null && date.isAfter(lastDay))) {
+                continue;
+            }
+            day.getValue().forEach((employeeId, dayTotals) -> totals.merge(employeeId, dayTotals, Totals::plus));
+        }
+    }
+
+    private void addRaw(Map<String, Totals> totals, LocalDateTime from, LocalDateTime to, boolean toInclusive) throws IOException {
+        jdbcTemplate.query(
+                "SELECT employee_id, COUNT(*), MIN(timestamp), MAX(timestamp) FROM access_log "
+                        + "WHERE timestamp >= ? AND timestamp " + (toInclusive ? "<=" : "<") + " ? "
+                        + "AND employee_id IS NOT NULL AND area_id IS NOT NULL "
+                        + "GROUP BY employee_id",
+                resultSet -> {
+                    add(totals, resultSet);
+                },
+                from, to);
+        if (from.isBefore(accessLogArchiveService.archiveHorizon())) {
+            accessLogArchiveService.forEachInRange(from, to, event -> {
+                if (event.getEmployeeId() != null && event.getAreaId() != null
+                        && (toInclusive || event.getTimestamp().isBefore(to))) {
+                    totals.merge(event.getEmployeeId(), new Totals(1, event.getTimestamp(), event.getTimestamp()), Totals::plus);
+                }
+            });
+        }
+    }
+
+    private static void add(Map<String, Totals> totals, ResultSet resultSet) throws SQLException {
+        totals.merge(resultSet.getString(1), new Totals(resultSet.getLong(2),
+                toLocalDateTime(resultSet.getTimestamp(3)), toLocalDateTime(resultSet.getTimestamp(4))), Totals::plus);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private static final class Key {
+        private final String employeeId;
+        private final String areaId;
+        private final LocalDate date;
+
+        private Key(String employeeId, String areaId, LocalDate date) {
+            this.employeeId = employeeId;
+            this.areaId = areaId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return employeeId.equals(other.employeeId) && areaId.equals(other.areaId) && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(employeeId, areaId, date);
+        }
+    }
+
+    private static final class Delta {
+        private long count;
+        private long authorized;
+        private LocalDateTime first;
+        private LocalDateTime last;
+
+        private void add(AccessEvent event) {
+            count++;
+            if (event.isAuthorized()) {
+                authorized++;
+            }
+            if (first == null || event.getTimestamp().isBefore(first)) {
+                first = event.getTimestamp();
+            }
+            if (last == null || event.getTimestamp().isAfter(last)) {
+                last = event.getTimestamp();
+            }
+        }
+    }
+
+    private static final class Totals {
+        private final long count;
+        private final LocalDateTime first;
+        private final LocalDateTime last;
+
+        private Totals(long count, LocalDateTime first, LocalDateTime last) {
+            this.count = count;
+            this.first = first;
+            this.last = last;
+        }
+
+        private Totals plus(Totals other) {
+            return new Totals(count + other.count,
+                    first == null || (other.first != null && other.first.isBefore(first)) ? other.first : first,
+                    last == null || (other.last != null && other.last.isAfter(last)) ? other.last : last);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.repository.AreaAccessRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the {@code AreaAccess} table as an employee-by-area bit
+ * matrix, so that the access decision for a scan is an O(1) lookup instead of a
+ * query. Employees and areas are given dense indexes the first time they are
+ * seen; each employee row is a {@code long[]} with one bit per area.
+ * <p>
+ * The matrix is loaded once the application is ready and kept current by the
+ * access endpoints. Until it is loaded, lookups fall back to the database.
+ * A reload queries outside the lock; grants and revocations applied while the
+ * query runs are recorded and replayed onto its result before it is swapped in.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuthorizationMatrix {
+
+    private final AreaAccessRepository areaAccessRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> employeeIndexes = new HashMap<>();
+    private final Map<String, Integer> areaIndexes = new HashMap<>();
+    private long[][] rows = new long[0][];
+    private volatile boolean loaded;
+
+    // changes applied since the oldest running reload started its query
+    private final List<Change> changesDuringReload = new ArrayList<>();
+    private int reloadsRunning;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        long start = System.nanoTime();
+        int firstChange;
+        lock.writeLock().lock();
+        try {
+            reloadsRunning++;
+            firstChange = changesDuringReload.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Object[]> pairs = null;
+        int grants;
+        int employees;
+        try {
+            pairs = areaAccessRepository.findAllEmployeeAreaPairs();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (pairs != null) {
+                    employeeIndexes.clear();
+                    areaIndexes.clear();
+                    rows = new long[0][];
+                    for (Object[] pair : pairs) {
+                        set((String) pair[0], (String) pair[1], true);
+                    }
+                    // a change that committed before the query is in both; replaying it is harmless
+                    for (Change change : changesDuringReload.subList(firstChange, changesDuringReload.size())) {
+                        set(change.employeeId, change.areaId, change.granted);
+                    }
+                    loaded = true;
+                }
+                if (--reloadsRunning == 0) {
+                    changesDuringReload.clear();
+                }
+                grants = pairs != null ? pairs.size() : 0;
+                employees = employeeIndexes.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Loaded {} area grants for {} employees in {} ms",
+                grants, employees, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reloads once the current transaction commits, or immediately if there is none.
+     */
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    public boolean isAuthorized(String employeeId, String areaId) {
+        if (!loaded) {
+            return areaAccessRepository.existsByEmployeeIdAndAreaId(employeeId, areaId);
+        }
+
+        lock.readLock().lock();
+        try {
+            Integer employee = employeeIndexes.get(employeeId);
+            Integer area = areaIndexes.get(areaId);
+            if (employee == null || area == null) {
+                return false;
+            }
+            long[] row = rows[employee];
+            int word = area >>> 6;
+            return word < row.length && (row[word] & (1L << area)) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void grant(String employeeId, String areaId) {
+        update(employeeId, areaId, true);
+    }
+
+    public void revoke(String employeeId, String areaId) {
+        update(employeeId, areaId, false);
+    }
+
+    /**
+     * Applies every (employee, area) change under one write lock, so lookups
+     * see either none or all of them.
+     */
+    public void updateAll(Collection<Map.Entry<String, String>> pairs, boolean granted) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, String> pair : pairs) {
+                apply(pair.getKey(), pair.getValue(), granted);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@link #updateAll} once the current transaction commits, or immediately if there is none.
+     */
+    public void updateAllAfterCommit(Collection<Map.Entry<String, String>> pairs, boolean granted) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    updateAll(pairs, granted);
+                }
+            });
+        } else {
+            updateAll(pairs, granted);
+        }
+    }
+
+    private void update(String employeeId, String areaId, boolean granted) {
+        lock.writeLock().lock();
+        try {
+            apply(employeeId, areaId, granted);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(String employeeId, String areaId, boolean granted) {
+        set(employeeId, areaId, granted);
+        if (reloadsRunning > 0) {
+            changesDuringReload.add(new Change(employeeId, areaId, granted));
+        }
+    }
+
+    private void set(String employeeId, String areaId, boolean granted) {
+        int employee = employeeIndexes.computeIfAbsent(employeeId, id -> employeeIndexes.size());
+        int area = areaIndexes.computeIfAbsent(areaId, id -> areaIndexes.size());
+        if (employee >= rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(16, employee * 2));
+        }
+
+        int word = area >>> 6;
+        long[] row = rows[employee];
+        if (row == null || word >= row.length) {
+            row = row == null ? new long[word + 1] : Arrays.copyOf(row, word + 1);
+            rows[employee] = row;
+        }
+        if (granted) {
+            row[word] |= 1L << area;
+        } else {
+            row[word] &= ~(1L << area);
+        }
+    }
+
+    private static final class Change {
+        private final String employeeId;
+        private final String areaId;
+        private final boolean granted;
+
+        private Change(String employeeId, String areaId, boolean granted) {
+            this.employeeId = employeeId;
+            this.areaId = areaId;
+            this.granted = granted;
+        }
+    }
+}
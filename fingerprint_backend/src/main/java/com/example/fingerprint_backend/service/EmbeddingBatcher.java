@@ -0,0 +1,292 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.model.InferenceResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent embedding requests for the same segmentation/recognition
+ * model pair into one {@code /api/embed-batch} call, so the AI backend runs a
+ * single batched {@code predict} instead of one per scan. A batch is sent when
+ * it reaches {@code fingerprint.batch.max-size} images or
+ * {@code fingerprint.batch.max-wait-millis} after its first image arrived,
+ * whichever comes first. With {@code fingerprint.api.protocol=cbor} the batch
+ * goes to {@code /api/v2/embed} as a single CBOR frame instead.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbeddingBatcher {
+
+    @Value("${fingerprint.batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fingerprint.batch.max-size:16}")
+    private int maxBatchSize;
+
+    @Value("${fingerprint.batch.max-wait-millis:5}")
+    private long maxWaitMillis;
+
+    @Value("${fingerprint.batch.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${fingerprint.batch.result-timeout-millis:30000}")
+    private long resultTimeoutMillis;
+
+    private final AiBackendClient aiBackendClient;
+    private final ModelRegistry modelRegistry;
+    private final ObjectMapper objectMapper;
+    private final RecognitionMetrics recognitionMetrics;
+
+    private final Map<String, PendingBatch> pending = new HashMap<>();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong images = new AtomicLong();
+    // fires max-wait deadlines only; it never blocks, so a deadline is not held up by sends in flight
+    private ScheduledThreadPoolExecutor timer;
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void start() {
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-batch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdown();
+        sender.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the preprocessed image for the next batch of its model pair and
+     * blocks until the batch has been embedded. Decoding this image's embedding
+     * is recorded as the {@code parse} phase under {@code tags}.
+     */
+    public float[] embed(
+            Resource image,
+            FingerprintSegmentationModel segmentationModel,
+            FingerprintRecognitionModel recognitionModel,
+            Tags tags) throws Exception {
+
+        BatchItem item = new BatchItem(inMemory(image), tags);
+        String key = segmentationModel.getPathName() + "|" + recognitionModel.getPathName();
+
+        PendingBatch full = null;
+        synchronized (pending) {
+            PendingBatch batch = pending.get(key);
+            if (batch == null) {
+                batch = new PendingBatch(segmentationModel.getPathName(), recognitionModel.getPathName());
+                pending.put(key, batch);
+                PendingBatch scheduled = batch;
+                timer.schedule(() -> flush(key, scheduled), maxWaitMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.items.add(item);
+            if (batch.items.size() >= maxBatchSize) {
+                pending.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            PendingBatch ready = full;
+            sender.execute(() -> send(ready));
+        }
+
+        try {
+            return item.result.get(resultTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (TimeoutException e) {
+            // a batch that has not gone out yet leaves this item out
+            item.result.cancel(false);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long batchCount = batches.get();
+        return Map.of(
+                "batches", batchCount,
+                "images", images.get(),
+                "meanBatchSize", batchCount == 0 ? 0.0 : (double) images.get() / batchCount);
+    }
+
+    private void flush(String key, PendingBatch batch) {
+        synchronized (pending) {
+            if (pending.get(key) != batch) {
+                return;
+            }
+            pending.remove(key);
+        }
+        sender.execute(() -> send(batch));
+    }
+
+    private void send(PendingBatch batch) {
+        batch.items.removeIf(item -> item.result.isCancelled());
+        if (batch.items.isEmpty()) {
+            return;
+        }
+        batches.incrementAndGet();
+        images.addAndGet(batch.items.size());
+        try {
+            String worker = modelRegistry.route(batch.segmentationModelPath, batch.recognitionModelPath);
+            if (aiBackendClient.isBinaryProtocol()) {
+                sendBinary(worker, batch);
+                return;
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+            for (BatchItem item : batch.items) {
+                body.add("files", item.image);
+            }
+            body.add("segmentation_model_path", batch.segmentationModelPath);
+            body.add("recognition_model_path", batch.recognitionModelPath);
+
+            ResponseEntity<String> response = aiBackendClient.post(
+                    worker, "/api/embed-batch", new HttpEntity<>(body, headers), String.class);
+
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new Exception("Failed to embed fingerprint batch: " + response.getBody());
+            }
+
+            JsonNode rootNode = objectMapper.readTree(response.getBody());
+            if (rootNode.has("error")) {
+                throw new Exception("Embedding error: " + rootNode.get("error").asText());
+            }
+
+            JsonNode results = rootNode.path("results");
+            for (int i = 0; i < batch.items.size(); i++) {
+                JsonNode result = results.path(i);
+                BatchItem item = batch.items.get(i);
+                if (result.has("embedding")) {
+                    long start = System.nanoTime();
+                    float[] embedding = EmbeddingGalleryService.toFloatArray(result.get("embedding"));
+                    recognitionMetrics.recordPhase(RecognitionMetrics.PARSE, item.tags, System.nanoTime() - start);
+                    item.result.complete(embedding);
+                } else {
+                    item.result.completeExceptionally(new Exception("Embedding error: "
+                            + result.path("error").asText("missing result")));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Embedding batch of {} failed: {}", batch.items.size(), e.getMessage());
+            for (BatchItem item : batch.items) {
+                item.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // one CBOR frame carrying every image of the batch, embeddings back as packed float32
+    private void sendBinary(String worker, PendingBatch batch) throws Exception {
+        List<Resource> batchImages = new ArrayList<>(batch.items.size());
+        for (BatchItem item : batch.items) {
+            batchImages.add(item.image);
+        }
+        InferenceResponse response = aiBackendClient.exchange(worker, "/api/v2/embed",
+                AiBackendClient.inferenceRequest(batch.segmentationModelPath, batch.recognitionModelPath, batchImages));
+        if (response.getError() != null) {
+            throw new Exception("Embedding error: " + response.getError());
+        }
+
+        List<InferenceResponse.Result> results = response.getResults() != null ? response.getResults() : List.of();
+        for (int i = 0; i < batch.items.size(); i++) {
+            InferenceResponse.Result result = i < results.size() ? results.get(i) : null;
+            BatchItem item = batch.items.get(i);
+            if (result != null && result.getEmbedding() != null) {
+                long start = System.nanoTime();
+                float[] embedding = EmbeddingGalleryService.toFloatArray(result.getEmbedding());
+                recognitionMetrics.recordPhase(RecognitionMetrics.PARSE, item.tags, System.nanoTime() - start);
+                item.result.complete(embedding);
+            } else {
+                item.result.completeExceptionally(new Exception("Embedding error: "
+                        + (result != null && result.getError() != null ? result.getError() : "missing result")));
+            }
+        }
+    }
+
+    private static final class PendingBatch {
+        private final String segmentationModelPath;
+        private final String recognitionModelPath;
+        private final List<BatchItem> items = new ArrayList<>();
+
+        private PendingBatch(String segmentationModelPath, String recognitionModelPath) {
+            this.segmentationModelPath = segmentationModelPath;
+            this.recognitionModelPath = recognitionModelPath;
+        }
+    }
+
+    // the sender can still read an image after its caller has timed out and the upload's
+    // temp file is gone, so an upload forwarded as-is is copied onto the heap first
+    private static Resource inMemory(Resource image) throws IOException {
+        if (image instanceof ByteArrayResource) {
+            return image;
+        }
+        String filename = image.getFilename();
+        return new ByteArrayResource(image.getContentAsByteArray()) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    private static final class BatchItem {
+        private final Resource image;
+        private final Tags tags;
+        private final CompletableFuture<float[]> result = new CompletableFuture<>();
+
+        private BatchItem(Resource image, Tags tags) {
+            this.image = image;
+            this.tags = tags;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.matcher.EmbeddingIndex;
+import com.example.fingerprint_backend.matcher.ExactScanMatcher;
+import com.example.fingerprint_backend.matcher.FingerprintMatcher;
+import com.example.fingerprint_backend.matcher.HnswMatcher;
+import com.example.fingerprint_backend.matcher.MatchCandidate;
+import com.example.fingerprint_backend.matcher.MatcherStats;
+import com.example.fingerprint_backend.matcher.TemplateStore;
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Holds the enrolled employee embeddings in memory so that 1:N matching runs in
+ * the JVM instead of in the inference tier. The AI backend is only asked for the
+ * probe embedding of each scan.
+ * <p>
+ * Embeddings from different recognition models are not comparable, so the
+ * gallery is partitioned by recognition model. Each partition owns a
+ * {@link TemplateStore} under {@code fingerprint.matcher.store-dir/<model>} and
+ * a matcher chosen with {@code fingerprint.matcher.type} ({@code exact} or
+ * {@code hnsw}). Partitions are opened lazily on first use and the least
+ * recently used one is closed once more than
+ * {@code fingerprint.matcher.max-partitions} are resident.
+ * <p>
+ * The service lock only guards the partition map. Opening a store and
+ * importing from the AI backend happen under the partition's own lock, so a
+ * slow import holds up scans for that model alone, which fall back to remote
+ * matching meanwhile. A failed import is retried on later scans with an
+ * exponential backoff capped at {@code fingerprint.matcher.import-retry-max-seconds}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbeddingGalleryService {
+
+    private static final String GRAPH_FILE = "gallery.hnsw";
+    private static final long IMPORT_RETRY_BASE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Value("${fingerprint.matcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fingerprint.matcher.type:exact}")
+    private String matcherType;
+
+    @Value("${fingerprint.matcher.store-dir:data/templates}")
+    private String storeDir;
+
+    @Value("${fingerprint.matcher.sync-writes:true}")
+    private boolean syncWrites;
+
+    @Value("${fingerprint.matcher.max-partitions:2}")
+    private int maxPartitions;
+
+    @Value("${fingerprint.matcher.save-interval-seconds:30}")
+    private long saveIntervalSeconds;
+
+    @Value("${fingerprint.matcher.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${fingerprint.matcher.hnsw.ef-construction:200}")
+    private int hnswEfConstruction;
+
+    @Value("${fingerprint.matcher.hnsw.ef-search:64}")
+    private int hnswEfSearch;
+
+    @Value("${fingerprint.matcher.recall-sample-interval:100}")
+    private int recallSampleInterval;
+
+    @Value("${fingerprint.matcher.import-retry-max-seconds:60}")
+    private long importRetryMaxSeconds;
+
+    private final AiBackendClient aiBackendClient;
+    private final ObjectMapper objectMapper;
+    private final RecognitionResultCache resultCache;
+
+    private final Map<String, Partition> partitions = new LinkedHashMap<>(16, 0.75f, true);
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "matcher-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSaver() {
+        if (enabled) {
+            saver.scheduleWithFixedDelay(this::saveAll, saveIntervalSeconds, saveIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saver.shutdown();
+        List<Partition> open;
+        synchronized (this) {
+            open = new ArrayList<>(partitions.values());
+            partitions.clear();
+        }
+        for (Partition partition : open) {
+            partition.close();
+        }
+    }
+
+    /**
+     * Whether scans for {@code model} can be matched locally. Opens the model's
+     * partition on first use, importing it from the AI backend if it is empty
+     * and no earlier import failed within the backoff.
+     */
+    public boolean isReady(FingerprintRecognitionModel model) {
+        if (!enabled || model == null) {
+            return false;
+        }
+        try {
+            FingerprintMatcher matcher = partition(model).matcher;
+            return matcher != null && matcher.size() > 0;
+        } catch (IOException e) {
+            log.warn("Could not open gallery partition for model {}: {}", partitionKey(model), e.getMessage());
+            return false;
+        }
+    }
+
+    public MatchCandidate findBestMatch(FingerprintRecognitionModel model, float[] probe) throws IOException {
+        FingerprintMatcher matcher = partition(model).matcher;
+        if (matcher == null) {
+            throw new IllegalStateException("Embedding gallery for model " + partitionKey(model) + " is not loaded");
+        }
+        return matcher.best(probe);
+    }
+
+    public Map<String, MatcherStats> stats() {
+        List<Partition> open;
+        synchronized (this) {
+            open = new ArrayList<>(partitions.values());
+        }
+        Map<String, MatcherStats> stats = new LinkedHashMap<>();
+        for (Partition partition : open) {
+            FingerprintMatcher matcher = partition.matcher;
+            stats.put(partition.key, matcher == null ? null : matcher.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Adds a newly enrolled sample to the model's partition. The template is
+     * appended to the store log immediately; the mapping is checkpointed in the
+     * background. Enrolling never creates a gallery: the partition has to be
+     * imported from the AI backend first, and the sample has to match its dimension.
+     *
+     * @throws IllegalStateException if the model's gallery is not loaded
+     * @throws IllegalArgumentException if the sample's dimension differs from the gallery's
+     */
+    public void enroll(FingerprintRecognitionModel model, String employeeId, String fingerprintId, float[] embedding)
+            throws IOException {
+        Partition partition = partition(model);
+        synchronized (partition) {
+            FingerprintMatcher matcher = partition.matcher;
+            if (matcher == null) {
+                throw new IllegalStateException("Embedding gallery for model " + partition.key
+                        + " is not loaded; reload it before enrolling");
+            }
+            if (matcher.dimension() != embedding.length) {
+                throw new IllegalArgumentException("Embedding of dimension " + embedding.length
+                        + " does not match the gallery of model " + partition.key
+                        + " (dimension " + matcher.dimension() + ")");
+            }
+            matcher.add(employeeId, fingerprintId, embedding);
+            partition.dirty.set(true);
+        }
+        resultCache.invalidateAll();
+    }
+
+    /**
+     * Re-imports the model's embeddings from the AI backend into a new store
+     * generation and atomically swaps in a matcher over it. In-flight searches
+     * keep using the previous generation.
+     */
+    public int reload(FingerprintRecognitionModel model) throws Exception {
+        Partition partition = partition(model);
+        synchronized (partition) {
+            importFromBackend(partition, model);
+            partition.imported();
+            resultCache.invalidateAll();
+            return partition.matcher == null ? 0 : partition.matcher.size();
+        }
+    }
+
+    /**
+     * Drops every template of every model, e.g. when employee folders are
+     * recreated from scratch.
+     */
+    public void reset() throws IOException {
+        resultCache.invalidateAll();
+        List<Partition> open;
+        synchronized (this) {
+            open = new ArrayList<>(partitions.values());
+        }
+        for (Partition partition : open) {
+            synchronized (partition) {
+                if (partition.closed) {
+                    continue;
+                }
+                openStore(partition);
+                partition.store.reset();
+                partition.matcher = null;
+                partition.imported();
+                Files.deleteIfExists(partition.graphFile);
+            }
+        }
+
+        Path root = Paths.get(storeDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> closed = new ArrayList<>();
+        try (Stream<Path> children = Files.list(root)) {
+            children.filter(Files::isDirectory)
+                    .filter(child -> open.stream().noneMatch(p -> p.key.equals(child.getFileName().toString())))
+                    .forEach(closed::add);
+        }
+        for (Path directory : closed) {
+            try (TemplateStore store = TemplateStore.open(directory, directory.getFileName().toString(), syncWrites)) {
+                store.reset();
+            }
+            Files.deleteIfExists(directory.resolve(GRAPH_FILE));
+        }
+    }
+
+    private Partition partition(FingerprintRecognitionModel model) throws IOException {
+        String key = partitionKey(model);
+        while (true) {
+            Partition partition;
+            List<Partition> evicted;
+            synchronized (this) {
+                partition = partitions.computeIfAbsent(key,
+                        k -> new Partition(k, Paths.get(storeDir, k), Paths.get(storeDir, k, GRAPH_FILE)));
+                evicted = evictIfNeeded(partition);
+            }
+            for (Partition eldest : evicted) {
+                eldest.close();
+                log.info("Evicted gallery partition {}", eldest.key);
+            }
+            if (partition.imported && !partition.closed) {
+                return partition;
+            }
+
+            synchronized (partition) {
+                if (partition.closed) {
+                    // evicted between the lookup and here; open a fresh one
+                    continue;
+                }
+                if (partition.store == null) {
+                    long start = System.nanoTime();
+                    openStore(partition);
+                    log.info("Opened gallery partition {} (generation {}, {} templates) in {} ms",
+                            key, partition.store.generation(), partition.matcher == null ? 0 : partition.matcher.size(),
+                            (System.nanoTime() - start) / 1_000_000);
+                }
+                if (partition.importDue() && model.getPathName() != null) {
+                    try {
+                        importFromBackend(partition, model);
+                        partition.imported();
+                    } catch (Exception e) {
+                        long backoff = partition.importFailed(IMPORT_RETRY_BASE_NANOS,
+                                TimeUnit.SECONDS.toNanos(importRetryMaxSeconds));
+                        log.warn("Could not import embeddings for model {}, retrying in {} ms: {}",
+                                key, backoff / 1_000_000, e.getMessage());
+                    }
+                }
+                return partition;
+            }
+        }
+    }
+
+    private void openStore(Partition partition) throws IOException {
+        if (partition.store != null) {
+            return;
+        }
+        partition.store = TemplateStore.open(partition.directory, partition.key, syncWrites);
+        if (!partition.store.isEmpty()) {
+            partition.matcher = createMatcher(partition.store.index(), partition.graphFile);
+            partition.imported();
+        }
+    }
+
+    // called with the service lock held; the caller closes what is returned once it has let go of it
+    private List<Partition> evictIfNeeded(Partition current) {
+        List<Partition> evicted = new ArrayList<>();
+        Iterator<Partition> eldest = partitions.values().iterator();
+        while (partitions.size() > Math.max(1, maxPartitions) && eldest.hasNext()) {
+            Partition partition = eldest.next();
+            if (partition == current) {
+                continue;
+            }
+            eldest.remove();
+            evicted.add(partition);
+        }
+        return evicted;
+    }
+
+    private void importFromBackend(Partition partition, FingerprintRecognitionModel model) throws Exception {
+        String url = UriComponentsBuilder.fromUriString(aiBackendClient.url("/api/embeddings"))
+                .queryParam("recognition_model_path", model.getPathName())
+                .toUriString();
+        ResponseEntity<String> response = aiBackendClient.get("/api/embeddings", url, String.class);
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            throw new Exception("Failed to fetch embeddings: " + response.getStatusCode());
+        }
+
+        JsonNode root = objectMapper.readTree(response.getBody());
+        if (root.has("error")) {
+            throw new Exception("Failed to fetch embeddings: " + root.get("error").asText());
+        }
+
+        int dimension = root.path("dimension").asInt();
+        JsonNode embeddings = root.path("embeddings");
+        Files.deleteIfExists(partition.graphFile);
+        if (dimension <= 0 || embeddings.isEmpty()) {
+            partition.store.reset();
+            partition.matcher = null;
+            log.info("Embedding gallery for model {} is empty", partition.key);
+            return;
+        }
+
+        List<JsonNode> entries = new ArrayList<>();
+        embeddings.forEach(entries::add);
+        EmbeddingIndex index = partition.store.rebuild(dimension, next -> {
+            for (JsonNode entry : entries) {
+                next.add(entry.get("employee_id").asText(), null, toFloatArray(entry.get("embedding")));
+            }
+        });
+        partition.matcher = createMatcher(index, partition.graphFile);
+        partition.dirty.set(true);
+        partition.save();
+
+        log.info("Loaded {} embeddings of dimension {} into the {} matcher for model {}",
+                index.size(), dimension, partition.matcher.type(), partition.key);
+    }
+
+    private FingerprintMatcher createMatcher(EmbeddingIndex index, Path graphFile) {
+        if (HnswMatcher.TYPE.equals(matcherType)) {
+            if (Files.exists(graphFile)) {
+                try {
+                    return HnswMatcher.load(graphFile, index, hnswEfSearch, recallSampleInterval);
+                } catch (Exception e) {
+                    log.warn("Could not open HNSW graph {}, rebuilding: {}", graphFile, e.getMessage());
+                }
+            }
+            return HnswMatcher.build(index, hnswM, hnswEfConstruction, hnswEfSearch, recallSampleInterval);
+        }
+        return new ExactScanMatcher(index);
+    }
+
+    private void saveAll() {
+        List<Partition> open;
+        synchronized (this) {
+            open = new ArrayList<>(partitions.values());
+        }
+        for (Partition partition : open) {
+            partition.save();
+        }
+    }
+
+    static String partitionKey(FingerprintRecognitionModel model) {
+        String key = model.getId() != null ? model.getId() : model.getPathName();
+        if (key == null) {
+            throw new IllegalArgumentException("Recognition model has neither an id nor a path name");
+        }
+        return key.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    static float[] toFloatArray(JsonNode array) {
+        float[] vector = new float[array.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) array.get(i).asDouble();
+        }
+        return vector;
+    }
+
+    // the binary protocol's packed little-endian float32
+    static float[] toFloatArray(byte[] packed) {
+        float[] vector = new float[packed.length / Float.BYTES];
+        ByteBuffer.wrap(packed).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private static final class Partition {
+        private final String key;
+        private final Path directory;
+        private final Path graphFile;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private volatile FingerprintMatcher matcher;
+
+        // written under the partition's monitor; imported and closed are also read without it
+        private volatile TemplateStore store;
+        private volatile boolean closed;
+        private volatile boolean imported;
+        private int importFailures;
+        private long importRetryAt;
+
+        private Partition(String key, Path directory, Path graphFile) {
+            this.key = key;
+            this.directory = directory;
+            this.graphFile = graphFile;
+        }
+
+        private boolean importDue() {
+            return !imported && store.isEmpty() && (importFailures == 0 || System.nanoTime() - importRetryAt >= 0);
+        }
+
+        private void imported() {
+            imported = true;
+            importFailures = 0;
+        }
+
+        // returns the backoff before the next attempt
+        private long importFailed(long baseNanos, long maxNanos) {
+            importFailures++;
+            long backoff = Math.min(maxNanos, baseNanos << Math.min(importFailures - 1, 20));
+            importRetryAt = System.nanoTime() + backoff;
+            return backoff;
+        }
+
+        private synchronized void save() {
+            FingerprintMatcher current = matcher;
+            if (current == null || !dirty.getAndSet(false)) {
+                return;
+            }
+            try {
+                store.checkpoint();
+                current.save(graphFile);
+            } catch (Exception e) {
+                dirty.set(true);
+                log.warn("Failed to checkpoint gallery partition {}: {}", key, e.getMessage());
+            }
+        }
+
+        private synchronized void close() {
+            closed = true;
+            if (store == null) {
+                return;
+            }
+            save();
+            try {
+                store.close();
+            } catch (IOException e) {
+                log.warn("Failed to close gallery partition {}: {}", key, e.getMessage());
+            }
+        }
+    }
+}
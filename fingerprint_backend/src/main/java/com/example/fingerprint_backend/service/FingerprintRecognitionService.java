@@ -1,161 +1,400 @@
 package com.example.fingerprint_backend.service;
 
+import com.example.fingerprint_backend.matcher.MatchCandidate;
 import com.example.fingerprint_backend.model.*;
-import com.example.fingerprint_backend.repository.*;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FingerprintRecognitionService {
 
-    @Value("${fingerprint.api.url}")
-    private String fingerprintApiUrl;
+    @Value("${fingerprint.matcher.threshold:0.85}")
+    private double matchThreshold;
+
+    @Value("${fingerprint.recognition.stage.receive.max-concurrent:32}")
+    private int receiveMaxConcurrent;
+
+    @Value("${fingerprint.recognition.stage.infer.max-concurrent:16}")
+    private int inferMaxConcurrent;
+
+    @Value("${fingerprint.recognition.stage.decide.max-concurrent:32}")
+    private int decideMaxConcurrent;
+
+    @Value("${fingerprint.recognition.stage.persist.max-concurrent:8}")
+    private int persistMaxConcurrent;
+
+    @Value("${fingerprint.recognition.stage.acquire-timeout:5s}")
+    private Duration stageAcquireTimeout;
+
+    private final AccessLogWriter accessLogWriter;
+    private final AuthorizationMatrix authorizationMatrix;
+    private final ReferenceDataCache referenceDataCache;
+    private final ModelRegistry modelRegistry;
+    private final EmbeddingGalleryService embeddingGalleryService;
+    private final EmbeddingBatcher embeddingBatcher;
+    private final ImagePreprocessor imagePreprocessor;
+    private final ObjectMapper objectMapper;
+    private final AiBackendClient aiBackendClient;
+    private final RecognitionResultCache resultCache;
+    private final RecognitionMetrics recognitionMetrics;
+
+    private PipelineStage receiveStage;
+    private PipelineStage inferStage;
+    private PipelineStage decideStage;
+    private PipelineStage persistStage;
+
+    @PostConstruct
+    public void createStages() {
+        receiveStage = new PipelineStage("receive", receiveMaxConcurrent, stageAcquireTimeout);
+        inferStage = new PipelineStage("infer", inferMaxConcurrent, stageAcquireTimeout);
+        decideStage = new PipelineStage("decide", decideMaxConcurrent, stageAcquireTimeout);
+        persistStage = new PipelineStage("persist", persistMaxConcurrent, stageAcquireTimeout);
+        for (PipelineStage stage : List.of(receiveStage, inferStage, decideStage, persistStage)) {
+            recognitionMetrics.bindStage(stage);
+        }
+    }
 
-    private final EmployeeRepository employeeRepository;
-    private final RecognitionRepository recognitionRepository;
-    private final AccessLogRepository accessLogRepository;
-    private final AreaAccessRepository areaAccessRepository;
-    private final AreaRepository areaRepository;
+    public RecognitionResult recognizeFingerprint(
+            MultipartFile fingerprintImage,
+            FingerprintSegmentationModel segmentationModel,
+            FingerprintRecognitionModel recognitionModel,
+            Tags tags) throws Exception {
 
-    @Autowired
-    private final RestTemplate restTemplate;
+        if (!resultCache.isEnabled()) {
+            return recognizeUncached(fingerprintImage, segmentationModel, recognitionModel, tags);
+        }
 
-    public RecognitionResult recognizeFingerprint(
+        String cacheKey = resultCache.key(fingerprintImage, segmentationModel, recognitionModel);
+        RecognitionResult cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        RecognitionResult result = recognizeUncached(fingerprintImage, segmentationModel, recognitionModel, tags);
+        resultCache.put(cacheKey, result);
+        return result;
+    }
+
+    private RecognitionResult recognizeUncached(
             MultipartFile fingerprintImage,
             FingerprintSegmentationModel segmentationModel,
-            FingerprintRecognitionModel recognitionModel) throws Exception {
+            FingerprintRecognitionModel recognitionModel,
+            Tags tags) throws Exception {
 
-        String segmentationModelPath = segmentationModel.getPathName();
-        String recognitionModelPath = recognitionModel.getPathName();
+        if (embeddingGalleryService.isReady(recognitionModel)) {
+            return matchLocally(fingerprintImage, segmentationModel, recognitionModel, tags);
+        }
 
         try {
-            byte[] fileBytes = fingerprintImage.getBytes();
+            Resource image = recognitionMetrics.time(RecognitionMetrics.UPLOAD, tags,
+                    () -> imagePreprocessor.prepare(fingerprintImage));
+            String worker = modelRegistry.route(segmentationModel.getPathName(), recognitionModel.getPathName());
+
+            if (aiBackendClient.isBinaryProtocol(image)) {
+                InferenceRequest request = AiBackendClient.inferenceRequest(
+                        segmentationModel.getPathName(), recognitionModel.getPathName(), List.of(image));
+                InferenceResponse response = recognitionMetrics.time(RecognitionMetrics.INFERENCE, tags,
+                        () -> aiBackendClient.exchange(worker, "/api/v2/recognize", request));
+                return recognitionMetrics.time(RecognitionMetrics.PARSE, tags, () -> {
+                    InferenceResponse.Result result = onlyResult(response, "Recognition");
+                    return new RecognitionResult(result.getEmployeeId(), result.getConfidence(),
+                            result.getFingerprintId(), result.isMatch());
+                });
+            }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+            HttpEntity<MultiValueMap<String, Object>> requestEntity =
+                    buildImageRequest(image, segmentationModel, recognitionModel);
 
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new ByteArrayResource(fileBytes) {
-                @Override
-                public String getFilename() {
-                    return fingerprintImage.getOriginalFilename();
-                }
-            });
-            body.add("segmentation_model_path", segmentationModelPath);
-            body.add("recognition_model_path", recognitionModelPath);
+            ResponseEntity<String> response = recognitionMetrics.time(RecognitionMetrics.INFERENCE, tags,
+                    () -> aiBackendClient.post(worker, "/api/recognize", requestEntity, String.class));
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+            if (response.getStatusCode().is2xxSuccessful()) {
+                RecognitionResult result = recognitionMetrics.time(RecognitionMetrics.PARSE, tags,
+                        () -> parseRecognitionResponse(response.getBody()));
 
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    fingerprintApiUrl + "/api/recognize",
-                    requestEntity,
-                    String.class);
+                log.debug("Recognized employeeId={}, confidence={}, fingerId={}",
+                        result.getEmployeeId(), result.getConfidence(), result.getFingerprintId());
 
-            if (response.getStatusCode().is2xxSuccessful()) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(response.getBody());
+                return result;
+            } else {
+                throw new Exception("Failed to recognize fingerprint: " + response.getBody());
+            }
+        } catch (IOException e) {
+            log.warn("Error in fingerprint recognition process: {}", e.getMessage());
+            throw new Exception("Failed to recognize fingerprint: " + e.getMessage(), e);
+        }
+    }
 
-                if (rootNode.has("error")) {
-                    throw new Exception("Recognition error: " + rootNode.get("error").asText());
-                }
+    /**
+     * Reads the {@code /api/recognize} response body.
+     */
+    RecognitionResult parseRecognitionResponse(String body) throws Exception {
+        JsonNode rootNode = objectMapper.readTree(body);
 
-                JsonNode similarityNode = rootNode.get("similarity");
+        if (rootNode.has("error")) {
+            throw new Exception("Recognition error: " + rootNode.get("error").asText());
+        }
 
-                String employeeId = null;
-                double confidence = 0.0;
-                String fingerprintId = null;
-                boolean isMatch = false;
+        JsonNode similarityNode = rootNode.get("similarity");
 
-                if (similarityNode != null) {
-                    JsonNode employeeIdNode = similarityNode.get("employee_id");
-                    if (employeeIdNode != null && !employeeIdNode.isNull()) {
-                        employeeId = employeeIdNode.asText();
-                    }
-                    JsonNode fingerIdNode = similarityNode.get("fingerprint_id");
-                    if (fingerIdNode != null && !fingerIdNode.isNull()) {
-                        fingerprintId = fingerIdNode.asText();
-                    }
+        String employeeId = null;
+        double confidence = 0.0;
+        String fingerprintId = null;
+        boolean isMatch = false;
 
-                    confidence = similarityNode.get("confidence").asDouble();
+        if (similarityNode != null) {
+            JsonNode employeeIdNode = similarityNode.get("employee_id");
+            if (employeeIdNode != null && !employeeIdNode.isNull()) {
+                employeeId = employeeIdNode.asText();
+            }
+            JsonNode fingerIdNode = similarityNode.get("fingerprint_id");
+            if (fingerIdNode != null && !fingerIdNode.isNull()) {
+                fingerprintId = fingerIdNode.asText();
+            }
 
-                    if (similarityNode.has("match")) {
-                        isMatch = similarityNode.get("match").asBoolean();
-                    }
-                }
+            confidence = similarityNode.get("confidence").asDouble();
 
-                System.out.println("Successfully recognized: employeeId=" + employeeId + ", confidence=" + confidence
-                        + " fingerId=" + fingerprintId);
+            if (similarityNode.has("match")) {
+                isMatch = similarityNode.get("match").asBoolean();
+            }
+        }
 
-                return new RecognitionResult(employeeId, confidence, fingerprintId, isMatch);
-            } else {
-                throw new Exception("Failed to recognize fingerprint: " + response.getBody());
+        return new RecognitionResult(employeeId, confidence, fingerprintId, isMatch);
+    }
+
+    public float[] embedFingerprint(
+            MultipartFile fingerprintImage,
+            FingerprintSegmentationModel segmentationModel,
+            FingerprintRecognitionModel recognitionModel) throws Exception {
+        // not part of a scan, so no phase timings
+        return embed(imagePreprocessor.prepare(fingerprintImage), segmentationModel, recognitionModel, null);
+    }
+
+    private float[] embed(
+            Resource image,
+            FingerprintSegmentationModel segmentationModel,
+            FingerprintRecognitionModel recognitionModel,
+            Tags tags) throws Exception {
+
+        if (embeddingBatcher.isEnabled()) {
+            return recognitionMetrics.time(RecognitionMetrics.INFERENCE, tags,
+                    () -> embeddingBatcher.embed(image, segmentationModel, recognitionModel, tags));
+        }
+
+        try {
+            String worker = modelRegistry.route(segmentationModel.getPathName(), recognitionModel.getPathName());
+
+            if (aiBackendClient.isBinaryProtocol(image)) {
+                InferenceRequest request = AiBackendClient.inferenceRequest(
+                        segmentationModel.getPathName(), recognitionModel.getPathName(), List.of(image));
+                InferenceResponse response = recognitionMetrics.time(RecognitionMetrics.INFERENCE, tags,
+                        () -> aiBackendClient.exchange(worker, "/api/v2/embed", request));
+                return recognitionMetrics.time(RecognitionMetrics.PARSE, tags,
+                        () -> EmbeddingGalleryService.toFloatArray(onlyResult(response, "Embedding").getEmbedding()));
+            }
+
+            HttpEntity<MultiValueMap<String, Object>> requestEntity =
+                    buildImageRequest(image, segmentationModel, recognitionModel);
+            ResponseEntity<String> response = recognitionMetrics.time(RecognitionMetrics.INFERENCE, tags,
+                    () -> aiBackendClient.post(worker, "/api/embed", requestEntity, String.class));
+
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new Exception("Failed to embed fingerprint: " + response.getBody());
             }
+
+            return recognitionMetrics.time(RecognitionMetrics.PARSE, tags, () -> {
+                JsonNode rootNode = objectMapper.readTree(response.getBody());
+                if (rootNode.has("error")) {
+                    throw new Exception("Embedding error: " + rootNode.get("error").asText());
+                }
+                return EmbeddingGalleryService.toFloatArray(rootNode.get("embedding"));
+            });
         } catch (IOException e) {
-            System.err.println("Error in fingerprint recognition process: " + e.getMessage());
-            e.printStackTrace();
-            throw new Exception("Failed to recognize fingerprint: " + e.getMessage(), e);
+            throw new Exception("Failed to embed fingerprint: " + e.getMessage(), e);
+        }
+    }
+
+    private RecognitionResult matchLocally(
+            MultipartFile fingerprintImage,
+            FingerprintSegmentationModel segmentationModel,
+            FingerprintRecognitionModel recognitionModel,
+            Tags tags) throws Exception {
+
+        Resource image = recognitionMetrics.time(RecognitionMetrics.UPLOAD, tags,
+                () -> imagePreprocessor.prepare(fingerprintImage));
+        float[] probe = embed(image, segmentationModel, recognitionModel, tags);
+        MatchCandidate best = recognitionMetrics.time(RecognitionMetrics.LOCAL_MATCH, tags,
+                () -> embeddingGalleryService.findBestMatch(recognitionModel, probe));
+        if (best == null) {
+            return new RecognitionResult(null, 0.0, null, false);
+        }
+
+        boolean isMatch = best.getScore() >= matchThreshold;
+        return new RecognitionResult(
+                isMatch ? best.getEmployeeId() : null,
+                best.getScore(),
+                isMatch ? best.getFingerprintId() : null,
+                isMatch);
+    }
+
+    private static InferenceResponse.Result onlyResult(InferenceResponse response, String call) throws Exception {
+        if (response.getError() != null) {
+            throw new Exception(call + " error: " + response.getError());
+        }
+        if (response.getResults() == null || response.getResults().isEmpty()) {
+            throw new Exception(call + " error: no result");
         }
+        InferenceResponse.Result result = response.getResults().get(0);
+        if (result.getError() != null) {
+            throw new Exception(call + " error: " + result.getError());
+        }
+        return result;
+    }
+
+    private HttpEntity<MultiValueMap<String, Object>> buildImageRequest(
+            Resource image,
+            FingerprintSegmentationModel segmentationModel,
+            FingerprintRecognitionModel recognitionModel) {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", image);
+        body.add("segmentation_model_path", segmentationModel.getPathName());
+        body.add("recognition_model_path", recognitionModel.getPathName());
+
+        return new HttpEntity<>(body, headers);
     }
 
-    @Transactional
+    /**
+     * Runs a scan through four stages, each a {@link PipelineStage} with its own
+     * concurrency limit and timings. Receive resolves the area and models from
+     * the {@link ReferenceDataCache}. Infer gets the match, with no transaction
+     * or connection held. Decide looks up the employee and the
+     * {@link AuthorizationMatrix} in memory. Persist hands the rows to the
+     * {@link AccessLogWriter}, which opens its own short transaction if it
+     * writes synchronously.
+     */
     public RecognitionResponse processRecognition(RecognitionRequest request) throws Exception {
-        RecognitionResult result = recognizeFingerprint(
-                request.getFile(),
-                request.getSegmentationModel(),
-                request.getRecognitionModel());
+        ResolvedRequest resolved = receiveStage.run(() -> resolve(request));
 
+        RecognitionResult result = inferStage.run(() -> recognizeFingerprint(
+                request.getFile(), resolved.segmentationModel, resolved.recognitionModel, resolved.tags));
         if (result == null) {
             throw new Exception("Fingerprint recognition failed");
         }
 
-        LocalDateTime now = LocalDateTime.now();
-        Optional<Area> areaOpt = areaRepository.findById(request.getArea().getId());
-        if (areaOpt.isEmpty()) {
-            throw new IllegalArgumentException("Area with ID " + request.getArea().getId() + " not found");
+        Decision decision = decideStage.run(() -> decide(resolved, result, request.getAccessType()));
+
+        AccessLog savedAccessLog = persistStage.run(
+                () -> accessLogWriter.record(decision.accessLog, decision.recognition));
+
+        RecognitionResponse.RecognitionResponseBuilder responseBuilder = RecognitionResponse.builder()
+                .matched(result.isMatch())
+                .confidence(result.getConfidence())
+                .accessLog(savedAccessLog)
+                .authorized(savedAccessLog.isAuthorized());
+
+        if (result.isMatch() && decision.employee != null) {
+            responseBuilder.accessable(decision.accessible);
+            responseBuilder.employeeId(result.getEmployeeId());
+            responseBuilder.employee(decision.employee);
         }
-        Area area = areaOpt.get();
+
+        return responseBuilder.build();
+    }
+
+    public Map<String, Object> pipelineStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (PipelineStage stage : List.of(receiveStage, inferStage, decideStage, persistStage)) {
+            stats.put(stage.getName(), stage.stats());
+        }
+        return stats;
+    }
+
+    private ResolvedRequest resolve(RecognitionRequest request) {
+        long start = System.nanoTime();
+        Area area = referenceDataCache.findArea(request.getArea().getId())
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Area with ID " + request.getArea().getId() + " not found"));
+        FingerprintSegmentationModel segmentationModel;
+        FingerprintRecognitionModel recognitionModel;
+        if (request.getSegmentationModel() == null && request.getRecognitionModel() == null) {
+            ModelRegistry.ActiveModels active = modelRegistry.active()
+                    .orElseThrow(() -> new IllegalStateException("No fingerprint models are registered"));
+            segmentationModel = active.getSegmentationModel();
+            recognitionModel = active.getRecognitionModel();
+        } else {
+            if (request.getSegmentationModel() == null || request.getRecognitionModel() == null) {
+                throw new IllegalArgumentException("Both segmentationModel and recognitionModel are required when either is given");
+            }
+            segmentationModel = referenceDataCache
+                    .findSegmentationModel(request.getSegmentationModel().getId())
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "Segmentation model with ID " + request.getSegmentationModel().getId() + " not found"));
+            recognitionModel = referenceDataCache
+                    .findRecognitionModel(request.getRecognitionModel().getId())
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "Recognition model with ID " + request.getRecognitionModel().getId() + " not found"));
+        }
+
+        Tags tags = recognitionMetrics.tags(area, request.getAccessType(), segmentationModel, recognitionModel);
+        recognitionMetrics.recordPhase(RecognitionMetrics.AREA_LOOKUP, tags, System.nanoTime() - start);
+        return new ResolvedRequest(area, segmentationModel, recognitionModel, tags);
+    }
+
+    Decision decide(ResolvedRequest resolved, RecognitionResult result, String accessType) {
+        LocalDateTime now = LocalDateTime.now();
 
         AccessLog accessLog = AccessLog.builder()
-                .area(area)
+                .area(resolved.area)
                 .timestamp(now)
-                .accessType(request.getAccessType())
+                .accessType(accessType)
                 .build();
 
         Employee employee = null;
         boolean isAccessible = false;
 
         if (result.isMatch() && result.getEmployeeId() != null) {
-            Optional<Employee> employeeOpt = employeeRepository.findById(result.getEmployeeId());
+            long lookupStart = System.nanoTime();
+            Optional<Employee> employeeOpt = referenceDataCache.findEmployee(result.getEmployeeId());
+            recognitionMetrics.recordPhase(RecognitionMetrics.EMPLOYEE_LOOKUP, resolved.tags,
+                    System.nanoTime() - lookupStart);
 
             if (employeeOpt.isPresent()) {
                 employee = employeeOpt.get();
                 accessLog.setEmployee(employee);
 
-                List<AreaAccess> areaAccessList = areaAccessRepository.findByEmployeeId(employee.getId());
-                isAccessible = areaAccessList.stream()
-                        .anyMatch(areaAccess -> areaAccess.getArea().getId().equals(area.getId()));
+                long authorizationStart = System.nanoTime();
+                isAccessible = authorizationMatrix.isAuthorized(employee.getId(), resolved.area.getId());
+                recognitionMetrics.recordPhase(RecognitionMetrics.AUTHORIZATION, resolved.tags,
+                        System.nanoTime() - authorizationStart);
 
                 accessLog.setAuthorized(isAccessible);
             } else {
@@ -167,37 +406,47 @@ public class FingerprintRecognitionService {
             accessLog.setEmployee(null);
         }
 
-        AccessLog savedAccessLog = accessLogRepository.save(accessLog);
-
-        try {
-            Recognition recognition = Recognition.builder()
-                    .employee(employee)
-                    .accessLog(savedAccessLog)
-                    .fingerprintSegmentationModel(request.getSegmentationModel())
-                    .fingerprintRecognitionModel(request.getRecognitionModel())
-                    .timestamp(now)
-                    .confidence((float) result.getConfidence())
-                    .build();
+        Recognition recognition = Recognition.builder()
+                .employee(employee)
+                .fingerprintSegmentationModel(resolved.segmentationModel)
+                .fingerprintRecognitionModel(resolved.recognitionModel)
+                .timestamp(now)
+                .confidence((float) result.getConfidence())
+                .build();
 
-            recognitionRepository.save(recognition);
+        recognitionMetrics.recordOutcome(resolved.tags, result, employee != null, isAccessible);
+        return new Decision(accessLog, recognition, employee, isAccessible);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Failed to create recognition record: " + e.getMessage());
-            e.printStackTrace();
+    static final class ResolvedRequest {
+        private final Area area;
+        private final FingerprintSegmentationModel segmentationModel;
+        private final FingerprintRecognitionModel recognitionModel;
+        private final Tags tags;
+
+        ResolvedRequest(
+                Area area,
+                FingerprintSegmentationModel segmentationModel,
+                FingerprintRecognitionModel recognitionModel,
+                Tags tags) {
+            this.area = area;
+            this.segmentationModel = segmentationModel;
+            this.recognitionModel = recognitionModel;
+            this.tags = tags;
         }
+    }
 
-        RecognitionResponse.RecognitionResponseBuilder responseBuilder = RecognitionResponse.builder()
-                .matched(result.isMatch())
-                .confidence(result.getConfidence())
-                .accessLog(savedAccessLog)
-                .authorized(savedAccessLog.isAuthorized());
-
-        if (result.isMatch() && employee != null) {
-            responseBuilder.accessable(isAccessible);
-            responseBuilder.employeeId(result.getEmployeeId());
-            responseBuilder.employee(employee);
+    static final class Decision {
+        private final AccessLog accessLog;
+        private final Recognition recognition;
+        private final Employee employee;
+        private final boolean accessible;
+
+        private Decision(AccessLog accessLog, Recognition recognition, Employee employee, boolean accessible) {
+            this.accessLog = accessLog;
+            this.recognition = recognition;
+            this.employee = employee;
+            this.accessible = accessible;
         }
-
-        return responseBuilder.build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package com.example.fingerprint_backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Shrinks kiosk scans before they are sent for inference. The AI backend reads
+ * every scan as grayscale and resizes it to the model input (90x90 for the
+ * current recognition models), so a multi-megabyte colour scan is decoded here,
+ * converted to 8-bit grayscale, area-averaged down so that its longer side is at
+ * most {@code fingerprint.preprocess.max-side}, and forwarded as a small PNG.
+ * The aspect ratio is kept so the backend's own resize sees the same geometry.
+ * <p>
+ * Scans that cannot be decoded are forwarded untouched.
+ */
+@Slf4j
+@Service
+public class ImagePreprocessor {
+
+    private static final String FILENAME = "scan.png";
+
+    @Value("${fingerprint.preprocess.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fingerprint.preprocess.max-side:256}")
+    private int maxSide;
+
+    public Resource prepare(MultipartFile fingerprintImage) throws IOException {
+        if (!enabled) {
+            return fingerprintImage.getResource();
+        }
+
+        BufferedImage source;
+        try (InputStream in = fingerprintImage.getInputStream()) {
+            source = ImageIO.read(in);
+        }
+        if (source == null) {
+            log.debug("Unsupported image format for {}, forwarding as-is", fingerprintImage.getOriginalFilename());
+            return fingerprintImage.getResource();
+        }
+
+        BufferedImage gray = toGray(source, maxSide);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(gray.getWidth() * gray.getHeight() / 2 + 1024);
+        ImageIO.write(gray, "png", out);
+        return new ByteArrayResource(out.toByteArray()) {
+            @Override
+            public String getFilename() {
+                return FILENAME;
+            }
+        };
+    }
+
+    /**
+     * Converts to 8-bit grayscale and box-filters down in one pass over the
+     * source, reading a row at a time into a reused buffer and writing straight
+     * into the destination raster.
+     */
+    static BufferedImage toGray(BufferedImage source, int maxSide) {
+        int srcWidth = source.getWidth();
+        int srcHeight = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSide / Math.max(srcWidth, srcHeight));
+        int dstWidth = Math.max(1, (int) Math.round(srcWidth * scale));
+        int dstHeight = Math.max(1, (int) Math.round(srcHeight * scale));
+
+        BufferedImage target = new BufferedImage(dstWidth, dstHeight, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] dst = ((DataBufferByte) target.getRaster().getDataBuffer()).getData();
+
+        int[] columnOf = new int[srcWidth];
+        int[] columnCount = new int[dstWidth];
+        for (int x = 0; x < srcWidth; x++) {
+            columnOf[x] = (int) ((long) x * dstWidth / srcWidth);
+            columnCount[columnOf[x]]++;
+        }
+
+        byte[] srcGray = source.getType() == BufferedImage.TYPE_BYTE_GRAY
+                ? ((DataBufferByte) source.getRaster().getDataBuffer()).getData()
+                : null;
+        int[] line = new int[srcWidth];
+        int[] sums = new int[dstWidth];
+
+        for (int y = 0; y < dstHeight; y++) {
+            int fromRow = (int) ((long) y * srcHeight / dstHeight);
+            int toRow = Math.max(fromRow + 1, (int) ((long) (y + 1) * srcHeight / dstHeight));
+            Arrays.fill(sums, 0);
+
+            for (int row = fromRow; row < toRow; row++) {
+                if (srcGray != null) {
+                    int offset = row * srcWidth;
+                    for (int x = 0; x < srcWidth; x++) {
+                        sums[columnOf[x]] += srcGray[offset + x] & 0xff;
+                    }
+                } else {
+                    source.getRGB(0, row, srcWidth, 1, line, 0, srcWidth);
+                    for (int x = 0; x < srcWidth; x++) {
+                        int rgb = line[x];
+                        int luma = (77 * ((rgb >> 16) & 0xff) + 150 * ((rgb >> 8) & 0xff) + 29 * (rgb & 0xff)) >> 8;
+                        sums[columnOf[x]] += luma;
+                    }
+                }
+            }
+
+            int rows = toRow - fromRow;
+            int offset = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                dst[offset + x] = (byte) (sums[x] / (columnCount[x] * rows));
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.repository.FingerprintRecognitionModelRepository;
+import com.example.fingerprint_backend.repository.FingerprintSegmentationModelRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which models are resident in the inference tier and which worker
+ * serves each segmentation/recognition model pair.
+ * <p>
+ * The active pair, the newest model of each kind by {@code createdAt}, is
+ * resolved once and used for scans that do not name their models. Every
+ * model-bound call asks {@link #route} for its worker. A pair is owned by one
+ * worker of {@code fingerprint.api.url}, chosen by rendezvous hashing, so it is
+ * only loaded there; workers whose circuit is open are skipped for the next in
+ * rank. The {@code fingerprint.models.warm-pool-size} most recently routed pairs
+ * (the active pair before any traffic) are sent to their owners'
+ * {@code /api/models/preload}, which loads and pins them. That happens at
+ * startup and whenever a pair enters the warm pool, on a background thread.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ModelRegistry {
+
+    @Value("${fingerprint.models.warm-pool-size:2}")
+    private int warmPoolSize;
+
+    @Value("${fingerprint.models.preload-on-startup:true}")
+    private boolean preloadOnStartup;
+
+    private final FingerprintSegmentationModelRepository segmentationModelRepository;
+    private final FingerprintRecognitionModelRepository recognitionModelRepository;
+    private final AiBackendClient aiBackendClient;
+    private final ObjectMapper objectMapper;
+
+    // access-ordered; holds exactly the warm pool
+    private final Map<String, ModelPair> warmPool = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ModelPair> eldest) {
+            return size() > warmPoolSize;
+        }
+    };
+    private final Map<String, List<String>> resident = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> routed = new ConcurrentHashMap<>();
+    private final AtomicBoolean preloadQueued = new AtomicBoolean();
+    private final LongAdder preloads = new LongAdder();
+    private final LongAdder preloadFailures = new LongAdder();
+    private final ExecutorService preloader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "model-preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ActiveModels active;
+
+    @Getter
+    @RequiredArgsConstructor
+    public static final class ActiveModels {
+        private final FingerprintSegmentationModel segmentationModel;
+        private final FingerprintRecognitionModel recognitionModel;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (preloadOnStartup) {
+            schedulePreload();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        preloader.shutdownNow();
+    }
+
+    /**
+     * The newest segmentation and recognition model, resolved on first use and
+     * kept until {@link #resetAfterCommit}.
+     */
+    public Optional<ActiveModels> active() {
+        ActiveModels current = active;
+        if (current == null) {
+            Optional<FingerprintSegmentationModel> segmentationModel =
+                    segmentationModelRepository.findTopByOrderByCreatedAtDesc();
+            Optional<FingerprintRecognitionModel> recognitionModel =
+                    recognitionModelRepository.findTopByOrderByCreatedAtDesc();
+            if (segmentationModel.isPresent() && recognitionModel.isPresent()) {
+                current = new ActiveModels(segmentationModel.get(), recognitionModel.get());
+                active = current;
+            }
+        }
+        return Optional.ofNullable(current);
+    }
+
+    /**
+     * Forgets the active pair once the surrounding transaction completes, and
+     * preloads the new one.
+     */
+    public void resetAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    reset();
+                }
+            });
+        } else {
+            reset();
+        }
+    }
+
+    /**
+     * The worker that should serve this model pair. Records the use, and
+     * queues a preload if the pair was not in the warm pool.
+     */
+    public String route(String segmentationModelPath, String recognitionModelPath) {
+        String key = key(segmentationModelPath, recognitionModelPath);
+        boolean entered;
+        synchronized (warmPool) {
+            entered = !warmPool.containsKey(key);
+            warmPool.put(key, new ModelPair(segmentationModelPath, recognitionModelPath));
+        }
+        if (entered) {
+            schedulePreload();
+        }
+        String worker = workerFor(key);
+        routed.computeIfAbsent(worker, w -> new LongAdder()).increment();
+        return worker;
+    }
+
+    /**
+     * Sends every worker the warm-pool pairs it owns, so it loads and pins
+     * them and releases any others.
+     */
+    public void preload() {
+        Optional<ActiveModels> activeModels = active();
+        List<ModelPair> pairs;
+        synchronized (warmPool) {
+            if (warmPool.isEmpty() && activeModels.isPresent()) {
+                ModelPair pair = new ModelPair(activeModels.get().getSegmentationModel().getPathName(),
+                        activeModels.get().getRecognitionModel().getPathName());
+                warmPool.put(pair.key(), pair);
+            }
+            pairs = new ArrayList<>(warmPool.values());
+        }
+
+        Map<String, List<Map<String, String>>> assignments = new LinkedHashMap<>();
+        for (String worker : aiBackendClient.workers()) {
+            assignments.put(worker, new ArrayList<>());
+        }
+        for (ModelPair pair : pairs) {
+            assignments.get(workerFor(pair.key())).add(Map.of(
+                    "segmentation_model_path", pair.segmentationModelPath,
+                    "recognition_model_path", pair.recognitionModelPath));
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        assignments.forEach((worker, models) -> {
+            if (!aiBackendClient.isAvailable(worker)) {
+                return;
+            }
+            preloads.increment();
+            try {
+                // a String body is sent with a Content-Length rather than chunked
+                String body = objectMapper.writeValueAsString(Map.of("models", models));
+                ResponseEntity<String> response = aiBackendClient.post(
+                        worker, "/api/models/preload", new HttpEntity<>(body, headers), String.class);
+                JsonNode root = objectMapper.readTree(response.getBody());
+                List<String> keys = new ArrayList<>();
+                for (JsonNode model : root.path("resident")) {
+                    keys.add(key(model.path("segmentation_model_path").asText(),
+                            model.path("recognition_model_path").asText()));
+                }
+                resident.put(worker, keys);
+                for (JsonNode model : root.path("failed")) {
+                    log.warn("Worker {} could not load models {} / {}", worker,
+                            model.path("segmentation_model_path").asText(), model.path("recognition_model_path").asText());
+                }
+            } catch (Exception e) {
+                preloadFailures.increment();
+                log.warn("Failed to preload models on {}: {}", worker, e.getMessage());
+            }
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        ActiveModels current = active;
+        stats.put("active", current == null ? null : Map.of(
+                "segmentationModel", current.getSegmentationModel().getPathName(),
+                "recognitionModel", current.getRecognitionModel().getPathName()));
+        synchronized (warmPool) {
+            stats.put("warmPool", new ArrayList<>(warmPool.keySet()));
+        }
+        stats.put("resident", new LinkedHashMap<>(resident));
+        Map<String, Long> routedCounts = new LinkedHashMap<>();
+        routed.forEach((worker, count) -> routedCounts.put(worker, count.sum()));
+        stats.put("routed", routedCounts);
+        stats.put("preloads", preloads.sum());
+        stats.put("preloadFailures", preloadFailures.sum());
+        return stats;
+    }
+
+    private void reset() {
+        active = null;
+        synchronized (warmPool) {
+            warmPool.clear();
+        }
+        schedulePreload();
+    }
+
+    private void schedulePreload() {
+        if (preloadQueued.compareAndSet(false, true)) {
+            preloader.execute(() -> {
+                preloadQueued.set(false);
+                try {
+                    preload();
+                } catch (Exception e) {
+                    preloadFailures.increment();
+                    log.warn("Model preload failed: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Highest-ranked available worker for the pair, preferring one that
+     * reported it resident; the top-ranked worker if none is available.
+     */
+    private String workerFor(String key) {
+        List<String> workers = aiBackendClient.workers();
+        if (workers.size() == 1) {
+            return workers.get(0);
+        }
+        String best = null;
+        int bestTier = -1;
+        long bestScore = 0;
+        for (String worker : workers) {
+            int tier = !aiBackendClient.isAvailable(worker) ? 0
+                    : resident.getOrDefault(worker, List.of()).contains(key) ? 2 : 1;
+            long score = score(worker, key);
+            if (tier > bestTier || (tier == bestTier && score > bestScore)) {
+                best = worker;
+                bestTier = tier;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // FNV-1a over worker and key
+    private static long score(String worker, String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (String part : new String[]{worker, "|", key}) {
+            for (int i = 0; i < part.length(); i++) {
+                hash ^= part.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    private static String key(String segmentationModelPath, String recognitionModelPath) {
+        return segmentationModelPath + "|" + recognitionModelPath;
+    }
+
+    private static final class ModelPair {
+        private final String segmentationModelPath;
+        private final String recognitionModelPath;
+
+        private ModelPair(String segmentationModelPath, String recognitionModelPath) {
+            this.segmentationModelPath = segmentationModelPath;
+            this.recognitionModelPath = recognitionModelPath;
+        }
+
+        private String key() {
+            return ModelRegistry.key(segmentationModelPath, recognitionModelPath);
+        }
+    }
+}
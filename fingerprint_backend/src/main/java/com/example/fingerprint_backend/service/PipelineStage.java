@@ -0,0 +1,106 @@
+package com.example.fingerprint_backend.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One stage of the recognition pipeline. At most {@code maxConcurrent} calls
+ * run at once; a caller waits up to {@code acquireTimeout} for a slot and is
+ * rejected after that. Time spent waiting and running is recorded separately.
+ */
+public class PipelineStage {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long acquireTimeoutNanos;
+    private final Semaphore permits;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    public PipelineStage(String name, int maxConcurrent, Duration acquireTimeout) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * @throws RejectedExecutionException if no slot frees up within the acquire timeout
+     */
+    public <T> T run(Callable<T> work) throws Exception {
+        long queuedAt = System.nanoTime();
+        if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            rejected.increment();
+            throw new RejectedExecutionException("Recognition " + name + " stage is saturated");
+        }
+        long start = System.nanoTime();
+        waitNanos.add(start - queuedAt);
+        try {
+            return work.call();
+        } catch (Exception e) {
+            failures.increment();
+            throw e;
+        } finally {
+            permits.release();
+            long nanos = System.nanoTime() - start;
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public double getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public double getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public double getRejected() {
+        return rejected.sum();
+    }
+
+    public double getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public double getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    public Map<String, Object> stats() {
+        long n = calls.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("active", maxConcurrent - permits.availablePermits());
+        stats.put("waiting", permits.getQueueLength());
+        stats.put("calls", n);
+        stats.put("failures", failures.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("meanWaitMillis", n == 0 ? 0.0 : waitNanos.sum() / (n * 1_000_000.0));
+        stats.put("meanMillis", n == 0 ? 0.0 : totalNanos.sum() / (n * 1_000_000.0));
+        stats.put("maxMillis", maxNanos.get() / 1_000_000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.Area;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded admission for recognition requests. Each area may have at most
+ * {@code fingerprint.recognition.max-in-flight-per-area} scans in progress, and
+ * all scans run on a fixed worker pool with a bounded queue, so a burst at
+ * shift change is rejected early instead of tying up servlet threads.
+ */
+@Service
+public class RecognitionAdmissionService {
+
+    private static final String DEFAULT_AREA = "default";
+
+    @Value("${fingerprint.recognition.max-in-flight-per-area:16}")
+    private int maxInFlightPerArea;
+
+    @Value("${fingerprint.recognition.worker-threads:32}")
+    private int workerThreads;
+
+    @Value("${fingerprint.recognition.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${fingerprint.recognition.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private final Map<String, Semaphore> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "recognition-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs {@code task} on the recognition pool if the area has capacity. The
+     * area must already be resolved to a stored one: every id gets its own
+     * quota, kept for the life of the service.
+     *
+     * @throws RejectedExecutionException if the area limit or the pool queue is full
+     */
+    public <T> CompletableFuture<T> submit(Area area, Callable<T> task) {
+        String areaKey = area != null && area.getId() != null ? area.getId() : DEFAULT_AREA;
+        Semaphore permits = inFlight.computeIfAbsent(areaKey, key -> new Semaphore(maxInFlightPerArea));
+        if (!permits.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Too many recognitions in flight for area " + areaKey);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Recognition queue is full");
+        }
+        return result;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "activeWorkers", executor.getActiveCount(),
+                "queued", executor.getQueue().size(),
+                "rejected", rejected.get());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.Area;
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.model.RecognitionResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the recognition path, scraped from
+ * {@code /actuator/prometheus}:
+ * <ul>
+ *   <li>{@code fingerprint.recognition.phase} - timer per phase of a scan, tagged
+ *       with the area, access type and model pair from {@link #tags}</li>
+ *   <li>{@code fingerprint.recognition.scans} - scans by outcome (granted, denied,
+ *       unmatched, unknown_employee), with the same tags</li>
+ *   <li>{@code fingerprint.recognition.confidence} - match confidence, with the
+ *       same tags and match/no-match</li>
+ *   <li>{@code fingerprint.recognition.stage*} - run time, queue wait, occupancy and
+ *       rejections of each {@link PipelineStage}</li>
+ *   <li>{@code fingerprint.access.writer.batch} - background inserts of journaled
+ *       access events</li>
+ * </ul>
+ * Set {@code fingerprint.metrics.area-tag=false} to report every area as
+ * {@code all} when there are too many gates for per-area series.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecognitionMetrics {
+
+    public static final String UPLOAD = "upload";
+    public static final String INFERENCE = "inference";
+    public static final String PARSE = "parse";
+    public static final String LOCAL_MATCH = "local_match";
+    public static final String AREA_LOOKUP = "area_lookup";
+    public static final String EMPLOYEE_LOOKUP = "employee_lookup";
+    public static final String AUTHORIZATION = "authorization";
+    public static final String ACCESS_LOG_SAVE = "access_log_save";
+    public static final String RECOGNITION_SAVE = "recognition_save";
+    public static final String JOURNAL_APPEND = "journal_append";
+
+    private static final Duration[] PHASE_BUCKETS = {
+            Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25),
+            Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+            Duration.ofSeconds(1), Duration.ofMillis(2500), Duration.ofSeconds(5)};
+    private static final double[] CONFIDENCE_BUCKETS = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.85, 0.9, 0.95, 1.0};
+
+    @Value("${fingerprint.metrics.area-tag:true}")
+    private boolean areaTag;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Tags for the phase timers and outcome counter of one scan.
+     */
+    public Tags tags(
+            Area area,
+            String accessType,
+            FingerprintSegmentationModel segmentationModel,
+            FingerprintRecognitionModel recognitionModel) {
+        return Tags.of(
+                "area", areaTag && area != null ? area.getId() : "all",
+                "access_type", accessType != null ? accessType : "none",
+                "segmentation_model", segmentationModel != null ? segmentationModel.getPathName() : "none",
+                "recognition_model", recognitionModel != null ? recognitionModel.getPathName() : "none");
+    }
+
+    /**
+     * Records nothing when {@code tags} is null, for calls made outside a scan
+     * such as enrollment.
+     */
+    public void recordPhase(String phase, Tags tags, long nanos) {
+        if (tags == null) {
+            return;
+        }
+        Timer.builder("fingerprint.recognition.phase")
+                .description("Time spent in one phase of a fingerprint scan")
+                .tags(tags)
+                .tag("phase", phase)
+                .serviceLevelObjectives(PHASE_BUCKETS)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs {@code work} and records its duration as {@code phase}, whether or
+     * not it throws.
+     */
+    public <T> T time(String phase, Tags tags, Callable<T> work) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return work.call();
+        } finally {
+            recordPhase(phase, tags, System.nanoTime() - start);
+        }
+    }
+
+    public void recordOutcome(Tags tags, RecognitionResult result, boolean knownEmployee, boolean authorized) {
+        String outcome = !result.isMatch() ? "unmatched"
+                : !knownEmployee ? "unknown_employee"
+                : authorized ? "granted" : "denied";
+        Counter.builder("fingerprint.recognition.scans")
+                .description("Fingerprint scans by outcome")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+
+        DistributionSummary.builder("fingerprint.recognition.confidence")
+                .description("Confidence of the best match for a scan")
+                .tags(tags)
+                .tag("match", Boolean.toString(result.isMatch()))
+                .serviceLevelObjectives(CONFIDENCE_BUCKETS)
+                .register(meterRegistry)
+                .record(result.getConfidence());
+    }
+
+    public void bindStage(PipelineStage stage) {
+        Tags tags = Tags.of("stage", stage.getName());
+        FunctionTimer.builder("fingerprint.recognition.stage", stage,
+                        PipelineStage::getCalls, PipelineStage::getTotalNanos, TimeUnit.NANOSECONDS)
+                .description("Time spent running in a recognition pipeline stage")
+                .tags(tags)
+                .register(meterRegistry);
+        FunctionTimer.builder("fingerprint.recognition.stage.wait", stage,
+                        PipelineStage::getCalls, PipelineStage::getWaitNanos, TimeUnit.NANOSECONDS)
+                .description("Time spent waiting for a slot in a recognition pipeline stage")
+                .tags(tags)
+                .register(meterRegistry);
+        FunctionCounter.builder("fingerprint.recognition.stage.rejected", stage, PipelineStage::getRejected)
+                .description("Scans rejected because a pipeline stage had no free slot in time")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("fingerprint.recognition.stage.active", stage, PipelineStage::getActive)
+                .description("Scans running in a recognition pipeline stage")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("fingerprint.recognition.stage.waiting", stage, PipelineStage::getWaiting)
+                .description("Scans waiting for a slot in a recognition pipeline stage")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    public void recordWriterBatch(long nanos) {
+        Timer.builder("fingerprint.access.writer.batch")
+                .description("Background insert of a batch of journaled access events")
+                .serviceLevelObjectives(PHASE_BUCKETS)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.model.RecognitionResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers recent recognition results by image content, so a gate that
+ * resubmits the identical scan within {@code fingerprint.cache.ttl} gets the
+ * previous result without another inference round trip. Keys are the SHA-256 of
+ * the uploaded bytes plus the model pair; the cache holds at most
+ * {@code fingerprint.cache.max-entries} results, evicting the least recently
+ * used. Any change to the enrolled gallery invalidates it.
+ */
+@Component
+public class RecognitionResultCache {
+
+    @Value("${fingerprint.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fingerprint.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${fingerprint.cache.ttl:30s}")
+    private Duration ttl;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String key(
+            MultipartFile fingerprintImage,
+            FingerprintSegmentationModel segmentationModel,
+            FingerprintRecognitionModel recognitionModel) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = fingerprintImage.getInputStream()) {
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest())
+                + '|' + segmentationModel.getPathName()
+                + '|' + recognitionModel.getPathName();
+    }
+
+    public synchronized RecognitionResult get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > System.nanoTime()) {
+            hits.increment();
+            return entry.result;
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses.increment();
+        return null;
+    }
+
+    public synchronized void put(String key, RecognitionResult result) {
+        entries.put(key, new Entry(result, System.nanoTime() + ttl.toNanos()));
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", lookups - hitCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        return stats;
+    }
+
+    private static final class Entry {
+        private final RecognitionResult result;
+        private final long expiresAt;
+
+        private Entry(RecognitionResult result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
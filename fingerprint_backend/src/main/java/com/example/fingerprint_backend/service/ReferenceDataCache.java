@@ -0,0 +1,152 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.model.Area;
+import com.example.fingerprint_backend.model.Employee;
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.repository.AreaRepository;
+import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.repository.FingerprintRecognitionModelRepository;
+import com.example.fingerprint_backend.repository.FingerprintSegmentationModelRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of the rows the recognition path looks up by id on every
+ * scan: areas, segmentation and recognition models, and the {@code Employee}
+ * projections from {@link EmployeeRepository#findById}. Entries stay until they
+ * are invalidated; anything that writes these tables must call
+ * {@link #invalidateAllAfterCommit}. A load that overlaps an invalidation is
+ * returned but not cached, and ids that are not found are not cached.
+ */
+@Component
+public class ReferenceDataCache {
+
+    @Value("${fingerprint.reference-cache.enabled:true}")
+    private boolean enabled;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final Region<Area> areas;
+    private final Region<Employee> employees;
+    private final Region<FingerprintSegmentationModel> segmentationModels;
+    private final Region<FingerprintRecognitionModel> recognitionModels;
+
+    public ReferenceDataCache(
+            AreaRepository areaRepository,
+            EmployeeRepository employeeRepository,
+            FingerprintSegmentationModelRepository segmentationModelRepository,
+            FingerprintRecognitionModelRepository recognitionModelRepository) {
+        this.areas = new Region<>(id -> areaRepository.findById(id).orElse(null));
+        this.employees = new Region<>(id -> employeeRepository.findById(id).orElse(null));
+        this.segmentationModels = new Region<>(id -> segmentationModelRepository.findById(id).orElse(null));
+        this.recognitionModels = new Region<>(id -> recognitionModelRepository.findById(id).orElse(null));
+    }
+
+    public Optional<Area> findArea(String id) {
+        return areas.get(id);
+    }
+
+    public Optional<Employee> findEmployee(String id) {
+        return employees.get(id);
+    }
+
+    public Optional<FingerprintSegmentationModel> findSegmentationModel(String id) {
+        return segmentationModels.get(id);
+    }
+
+    public Optional<FingerprintRecognitionModel> findRecognitionModel(String id) {
+        return recognitionModels.get(id);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        areas.invalidateAll();
+        employees.invalidateAll();
+        segmentationModels.invalidateAll();
+        recognitionModels.invalidateAll();
+    }
+
+    /**
+     * Clears the cache now and again when the surrounding transaction commits,
+     * so a scan running concurrently cannot re-cache a row the transaction is
+     * about to change.
+     */
+    public void invalidateAllAfterCommit() {
+        invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("areas", areas.stats());
+        stats.put("employees", employees.stats());
+        stats.put("segmentationModels", segmentationModels.stats());
+        stats.put("recognitionModels", recognitionModels.stats());
+        return stats;
+    }
+
+    private final class Region<T> {
+        private final Map<String, T> entries = new ConcurrentHashMap<>();
+        private final Function<String, T> loader;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private Region(Function<String, T> loader) {
+            this.loader = loader;
+        }
+
+        Optional<T> get(String id) {
+            if (id == null) {
+                return Optional.empty();
+            }
+            if (!enabled) {
+                return Optional.ofNullable(loader.apply(id));
+            }
+            T cached = entries.get(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            misses.increment();
+            long loadedAt = generation.get();
+            T loaded = loader.apply(id);
+            if (loaded != null && generation.get() == loadedAt) {
+                entries.put(id, loaded);
+            }
+            return Optional.ofNullable(loaded);
+        }
+
+        void invalidateAll() {
+            entries.clear();
+        }
+
+        Map<String, Object> stats() {
+            long hitCount = hits.sum();
+            long lookups = hitCount + misses.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", entries.size());
+            stats.put("hits", hitCount);
+            stats.put("misses", lookups - hitCount);
+            stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+            return stats;
+        }
+    }
+}
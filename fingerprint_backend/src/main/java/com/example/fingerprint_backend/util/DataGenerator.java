@@ -9,16 +9,20 @@ import com.example.fingerprint_backend.repository.UserRepository;
 import com.example.fingerprint_backend.repository.FingerprintRecognitionModelRepository;
 import com.example.fingerprint_backend.repository.FingerprintSegmentationModelRepository;
 import com.example.fingerprint_backend.repository.RecognitionRepository;
+import com.example.fingerprint_backend.service.AiBackendClient;
+import com.example.fingerprint_backend.service.AttendanceRollupService;
+import com.example.fingerprint_backend.service.AuthorizationMatrix;
+import com.example.fingerprint_backend.service.EmbeddingGalleryService;
+import com.example.fingerprint_backend.service.ModelRegistry;
+import com.example.fingerprint_backend.service.ReferenceDataCache;
 import com.github.javafaker.Faker;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -42,12 +46,14 @@ public class DataGenerator {
     private final RecognitionRepository recognitionRepository;
     private final FingerprintRecognitionModelRepository fingerprintRecognitionModelRepository;
     private final FingerprintSegmentationModelRepository fingerprintSegmentationModelRepository;
+    private final EmbeddingGalleryService embeddingGalleryService;
+    private final AiBackendClient aiBackendClient;
+    private final AuthorizationMatrix authorizationMatrix;
+    private final AttendanceRollupService attendanceRollupService;
+    private final ReferenceDataCache referenceDataCache;
+    private final ModelRegistry modelRegistry;
 
     private final Faker faker = new Faker();
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    @Value("${fingerprint.api.url}")
-    private String fingerprintApiUrl;
 
     // @PostConstruct
     @Transactional
@@ -64,18 +70,23 @@ public class DataGenerator {
 
         List<Employee> employeeList = employeeRepository.findAll();
         createIdFolders(employeeList);
+
+        authorizationMatrix.reloadAfterCommit();
     }
 
     @Transactional
     public void clearExistingData() {
         accessLogRepository.deleteAll();
         recognitionRepository.deleteAll();
+        attendanceRollupService.clear();
         employeeRepository.deleteAll();
         adminRepository.deleteAll();
         userRepository.deleteAll();
         areaRepository.deleteAll();
         fingerprintRecognitionModelRepository.deleteAll();
         fingerprintSegmentationModelRepository.deleteAll();
+        referenceDataCache.invalidateAllAfterCommit();
+        modelRegistry.resetAfterCommit();
     }
 
     private void createIdFolders(List<Employee> employees) {
@@ -90,7 +101,7 @@ public class DataGenerator {
                     .collect(Collectors.toList());
 
             System.out.println("Creating folders for " + employeeIds.size() + " employee IDs");
-            System.out.println("Using API URL: " + fingerprintApiUrl);
+            System.out.println("Using API URL: " + aiBackendClient.url(""));
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
@@ -101,17 +112,14 @@ public class DataGenerator {
 
             HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
 
-            String baseUrl = fingerprintApiUrl;
-            if (!baseUrl.endsWith("/")) {
-                baseUrl += "/";
-            }
-
-            String fullUrl = baseUrl + "api/create-id-folders/";
-            System.out.println("Making request to: " + fullUrl);
+            String path = "/api/create-id-folders/";
+            System.out.println("Making request to: " + aiBackendClient.url(path));
 
-            Map<String, Object> response = restTemplate.postForObject(fullUrl, request, Map.class);
+            Map<String, Object> response = aiBackendClient.post(path, request, Map.class).getBody();
 
             System.out.println("API Response: " + response);
+
+            embeddingGalleryService.reset();
         } catch (Exception e) {
             System.err.println("Error calling create-id-folders API: " + e.getMessage());
             e.printStackTrace();
@@ -120,15 +128,10 @@ public class DataGenerator {
 
     private void loadModelDataFromAPI() {
         try {
-            String baseUrl = fingerprintApiUrl;
-            if (!baseUrl.endsWith("/")) {
-                baseUrl += "/";
-            }
-
-            String modelApiUrl = baseUrl + "api/models";
-            System.out.println("Fetching models from: " + modelApiUrl);
+            String path = "/api/models";
+            System.out.println("Fetching models from: " + aiBackendClient.url(path));
 
-            ResponseEntity<Map> response = restTemplate.getForEntity(modelApiUrl, Map.class);
+            ResponseEntity<Map> response = aiBackendClient.get(path, Map.class);
 
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
                 System.err.println("Error fetching model data from API: " + response.getStatusCode());
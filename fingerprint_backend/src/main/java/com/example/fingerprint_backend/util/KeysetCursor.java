@@ -0,0 +1,77 @@
+package com.example.fingerprint_backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a result ordered by {@code (timestamp, id)}: the key of the last
+ * row of a page. The next page is every row with a greater key, which the
+ * {@code (..., timestamp)} indexes answer with a range scan however deep the
+ * client has paged. Clients see it as an opaque URL-safe token.
+ */
+public final class KeysetCursor {
+
+    /**
+     * Sorts before every real row, for the first page of a range.
+     */
+    public static final UUID MIN_ID = new UUID(0, 0);
+
+    private final LocalDateTime timestamp;
+    private final UUID id;
+
+    public KeysetCursor(LocalDateTime timestamp, UUID id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static KeysetCursor parse(String token) {
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf('|');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + token);
+        }
+        try {
+            return new KeysetCursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((timestamp + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Orders keys the way the database does, comparing ids as unsigned bytes.
+     */
+    public static int compare(LocalDateTime timestamp, UUID id, LocalDateTime otherTimestamp, UUID otherId) {
+        int result = timestamp.compareTo(otherTimestamp);
+        if (result == 0) {
+            result = Long.compareUnsigned(id.getMostSignificantBits(), otherId.getMostSignificantBits());
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(id.getLeastSignificantBits(), otherId.getLeastSignificantBits());
+        }
+        return result;
+    }
+
+    public boolean isBefore(LocalDateTime otherTimestamp, UUID otherId) {
+        return compare(timestamp, id, otherTimestamp, otherId) < 0;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.fingerprint_backend.util;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * RFC 9562 version 7 UUIDs: a 48-bit Unix millisecond timestamp followed by
+ * random bits. Consecutive ids sort in creation order, so inserts append to the
+ * end of the primary key index instead of landing on random pages. Within one
+ * millisecond the 12-bit {@code rand_a} field is used as a counter, so ids from
+ * this JVM are strictly increasing.
+ */
+public final class TimeOrderedUuid {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static long lastMillis;
+    private static int counter;
+
+    private TimeOrderedUuid() {
+    }
+
+    public static UUID next() {
+        long millis;
+        int sequence;
+        synchronized (TimeOrderedUuid.class) {
+            millis = Math.max(System.currentTimeMillis(), lastMillis);
+            if (millis == lastMillis) {
+                counter++;
+                if (counter > 0xfff) {
+                    // counter exhausted: borrow the next millisecond
+                    millis++;
+                    counter = 0;
+                }
+            } else {
+                counter = RANDOM.nextInt(0x400);
+            }
+            lastMillis = millis;
+            sequence = counter;
+        }
+
+        long mostSigBits = (millis << 16) | 0x7000L | sequence;
+        long leastSigBits = (RANDOM.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
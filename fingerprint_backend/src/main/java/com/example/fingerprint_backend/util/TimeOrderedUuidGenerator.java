@@ -0,0 +1,17 @@
+package com.example.fingerprint_backend.util;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+
+/**
+ * Plugs {@link TimeOrderedUuid} into {@code @UuidGenerator(algorithm = ...)}.
+ */
+public class TimeOrderedUuidGenerator implements UuidValueGenerator {
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return TimeOrderedUuid.next();
+    }
+}
@@ -0,0 +1,95 @@
+-- Converts the access_log, recognition and area_access primary keys (and
+-- recognition.access_log_id) from CHAR(36)/VARCHAR UUID strings to BINARY(16).
+--
+-- Run against MySQL 8 with the application stopped, after taking a backup:
+--   mysqldump -u root -p fingerprint_db access_log recognition area_access > before-binary-ids.sql
+--   mysql -u root -p fingerprint_db < migrate-binary-uuid-ids.sql
+-- Existing random (v4) ids keep their value, only the storage changes; new rows
+-- get time-ordered v7 ids. The foreign key from recognition to access_log is
+-- dropped here and recreated by Hibernate (ddl-auto=update) on the next start.
+--
+-- The script is NOT atomic: MySQL commits every ALTER TABLE implicitly, so a
+-- transaction around the steps would not roll anything back. Instead each
+-- table is converted by a single ALTER TABLE, which InnoDB applies atomically,
+-- and every step first checks information_schema and skips a table whose id
+-- is already BINARY. If the script stops part-way, fix the cause and run it
+-- again; it resumes with the tables that are still CHAR(36). Restore the
+-- backup if the data itself turns out to be wrong.
+
+SET @fk = (SELECT CONSTRAINT_NAME FROM information_schema.KEY_COLUMN_USAGE
+           WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'recognition'
+             AND COLUMN_NAME = 'access_log_id' AND REFERENCED_TABLE_NAME = 'access_log' LIMIT 1);
+SET @sql = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE recognition DROP FOREIGN KEY ', @fk));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+DROP PROCEDURE IF EXISTS migrate_binary_uuid_ids;
+
+DELIMITER //
+
+CREATE PROCEDURE migrate_binary_uuid_ids()
+BEGIN
+    IF (SELECT DATA_TYPE FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'access_log' AND COLUMN_NAME = 'id') <> 'binary' THEN
+        -- left behind by an earlier run that failed before its ALTER
+        IF EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'access_log' AND COLUMN_NAME = 'id_bin') THEN
+            ALTER TABLE access_log DROP COLUMN id_bin;
+        END IF;
+        ALTER TABLE access_log ADD COLUMN id_bin BINARY(16);
+        UPDATE access_log SET id_bin = UUID_TO_BIN(id);
+        ALTER TABLE access_log
+            DROP PRIMARY KEY,
+            DROP COLUMN id,
+            RENAME COLUMN id_bin TO id,
+            MODIFY id BINARY(16) NOT NULL,
+            ADD PRIMARY KEY (id);
+    END IF;
+
+    IF (SELECT DATA_TYPE FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'recognition' AND COLUMN_NAME = 'id') <> 'binary' THEN
+        IF EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'recognition' AND COLUMN_NAME = 'id_bin') THEN
+            ALTER TABLE recognition DROP COLUMN id_bin;
+        END IF;
+        IF EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'recognition' AND COLUMN_NAME = 'access_log_id_bin') THEN
+            ALTER TABLE recognition DROP COLUMN access_log_id_bin;
+        END IF;
+        ALTER TABLE recognition ADD COLUMN id_bin BINARY(16), ADD COLUMN access_log_id_bin BINARY(16);
+        UPDATE recognition
+        SET id_bin = UUID_TO_BIN(id),
+            access_log_id_bin = IF(access_log_id IS NULL, NULL, UUID_TO_BIN(access_log_id));
+        ALTER TABLE recognition
+            DROP PRIMARY KEY,
+            DROP COLUMN id,
+            DROP COLUMN access_log_id,
+            RENAME COLUMN id_bin TO id,
+            RENAME COLUMN access_log_id_bin TO access_log_id,
+            MODIFY id BINARY(16) NOT NULL,
+            ADD PRIMARY KEY (id),
+            ADD UNIQUE KEY uk_recognition_access_log (access_log_id);
+    END IF;
+
+    IF (SELECT DATA_TYPE FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'area_access' AND COLUMN_NAME = 'id') <> 'binary' THEN
+        IF EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'area_access' AND COLUMN_NAME = 'id_bin') THEN
+            ALTER TABLE area_access DROP COLUMN id_bin;
+        END IF;
+        ALTER TABLE area_access ADD COLUMN id_bin BINARY(16);
+        UPDATE area_access SET id_bin = UUID_TO_BIN(id);
+        ALTER TABLE area_access
+            DROP PRIMARY KEY,
+            DROP COLUMN id,
+            RENAME COLUMN id_bin TO id,
+            MODIFY id BINARY(16) NOT NULL,
+            ADD PRIMARY KEY (id);
+    END IF;
+END //
+
+DELIMITER ;
+
+CALL migrate_binary_uuid_ids();
+DROP PROCEDURE migrate_binary_uuid_ids;
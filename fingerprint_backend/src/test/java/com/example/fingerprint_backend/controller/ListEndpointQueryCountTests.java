@@ -0,0 +1,163 @@
+package com.example.fingerprint_backend.controller;
+
+import com.example.fingerprint_backend.model.AccessLog;
+import com.example.fingerprint_backend.model.Area;
+import com.example.fingerprint_backend.model.AreaAccess;
+import com.example.fingerprint_backend.model.Employee;
+import com.example.fingerprint_backend.model.FingerprintRecognitionModel;
+import com.example.fingerprint_backend.model.FingerprintSegmentationModel;
+import com.example.fingerprint_backend.model.Recognition;
+import com.example.fingerprint_backend.repository.AccessLogRepository;
+import com.example.fingerprint_backend.repository.AreaAccessRepository;
+import com.example.fingerprint_backend.repository.AreaRepository;
+import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.repository.FingerprintRecognitionModelRepository;
+import com.example.fingerprint_backend.repository.FingerprintSegmentationModelRepository;
+import com.example.fingerprint_backend.repository.RecognitionRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query budgets for the list endpoints. Each endpoint is called against
+ * {@link #ROWS} rows and must issue no more than its budget of SQL statements,
+ * counted by Hibernate statistics and including lazy loads made while the
+ * response is serialized. A budget that grows with the row count is an N+1.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-count;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "fingerprint.journal.enabled=false",
+        "fingerprint.matcher.enabled=false",
+        "fingerprint.models.preload-on-startup=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListEndpointQueryCountTests {
+
+    private static final int ROWS = 30;
+    private static final String EMPLOYEE_ID = "E-QC-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AreaRepository areaRepository;
+
+    @Autowired
+    private AreaAccessRepository areaAccessRepository;
+
+    @Autowired
+    private AccessLogRepository accessLogRepository;
+
+    @Autowired
+    private RecognitionRepository recognitionRepository;
+
+    @Autowired
+    private FingerprintSegmentationModelRepository segmentationModelRepository;
+
+    @Autowired
+    private FingerprintRecognitionModelRepository recognitionModelRepository;
+
+    private LocalDateTime start;
+
+    @BeforeAll
+    void seed() {
+        Employee employee = employeeRepository.save(new Employee(EMPLOYEE_ID, "Query Count", "0", "-", 5));
+        Area[] areas = new Area[3];
+        for (int i = 0; i < areas.length; i++) {
+            areas[i] = areaRepository.save(Area.builder().id("A-QC-" + i).name("Area " + i).securityLevel(i).build());
+            areaAccessRepository.save(AreaAccess.builder()
+                    .employee(employee).area(areas[i]).timestamp(LocalDateTime.now()).build());
+        }
+        FingerprintSegmentationModel segmentationModel = segmentationModelRepository.save(
+                FingerprintSegmentationModel.builder().name("seg").pathName("seg.pt").build());
+        FingerprintRecognitionModel recognitionModel = recognitionModelRepository.save(
+                FingerprintRecognitionModel.builder().name("rec").pathName("rec.pt").build());
+
+        start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusDays(1);
+        for (int i = 0; i < ROWS; i++) {
+            LocalDateTime timestamp = start.plusMinutes(i);
+            AccessLog accessLog = accessLogRepository.save(AccessLog.builder()
+                    .employee(employee)
+                    .area(areas[i % areas.length])
+                    .timestamp(timestamp)
+                    .authorized(true)
+                    .accessType("IN")
+                    .build());
+            recognitionRepository.save(Recognition.builder()
+                    .accessLog(accessLog)
+                    .employee(employee)
+                    .fingerprintSegmentationModel(segmentationModel)
+                    .fingerprintRecognitionModel(recognitionModel)
+                    .timestamp(timestamp)
+                    .confidence(0.9f)
+                    .build());
+        }
+    }
+
+    @Test
+    void accessLogsByEmployee() throws Exception {
+        // employee lookup + page
+        assertWithinBudget("GET /api/access-log/by-employee/{id}", 2, get("/api/access-log/by-employee/{id}", EMPLOYEE_ID)
+                .param("startDate", start.toString())
+                .param("endDate", start.plusDays(1).toString())
+                .param("limit", String.valueOf(ROWS)));
+    }
+
+    @Test
+    void recognitions() throws Exception {
+        assertWithinBudget("GET /api/recognition", 1, get("/api/recognition").param("limit", String.valueOf(ROWS)));
+    }
+
+    @Test
+    void recognitionsByEmployee() throws Exception {
+        assertWithinBudget("GET /api/recognition/employee/{id}", 1, get("/api/recognition/employee/{id}", EMPLOYEE_ID));
+    }
+
+    @Test
+    void areaAccessByEmployee() throws Exception {
+        assertWithinBudget("GET /api/access/by-employee/{id}", 1, get("/api/access/by-employee/{id}", EMPLOYEE_ID));
+    }
+
+    private void assertWithinBudget(String endpoint, long budget, RequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isNotEmpty());
+
+        assertThat(statistics.getPrepareStatementCount())
+                .as("SQL statements for %s", endpoint)
+                .isLessThanOrEqualTo(budget);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.fingerprint_backend.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recovery of the access event journal: events after the checkpoint survive a
+ * restart intact, a record whose checksum does not match ends the segment, and
+ * committing past a segment deletes it.
+ */
+class AccessEventJournalTests {
+
+    private static final int SEGMENT_BYTES = 1 << 16;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void eventsAfterTheCheckpointAreReturnedAfterReopening() throws IOException {
+        AccessEvent first = event("E-1");
+        AccessEvent second = event("E-2");
+        AccessEvent third = event("E-3");
+        try (AccessEventJournal journal = AccessEventJournal.open(dir, SEGMENT_BYTES, true)) {
+            AccessEventJournal.Position committed = journal.append(first);
+            journal.append(second);
+            journal.append(third);
+            journal.commit(committed);
+        }
+
+        try (AccessEventJournal journal = AccessEventJournal.open(dir, SEGMENT_BYTES, true)) {
+            assertThat(journal.uncommitted())
+                    .extracting(AccessEventJournal.Entry::getEvent)
+                    .containsExactly(second, third);
+        }
+    }
+
+    @Test
+    void recordWithABadChecksumIsDroppedAndOverwritten() throws IOException {
+        AccessEvent kept = event("E-1");
+        AccessEvent torn = event("E-2");
+        AccessEvent later = event("E-3");
+        try (AccessEventJournal journal = AccessEventJournal.open(dir, SEGMENT_BYTES, true)) {
+            journal.append(kept);
+            journal.append(torn);
+        }
+
+        // flip a payload byte of the second record, as a crash mid-write would leave it
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // segment header, first record, second record's length and checksum
+            long payload = 8 + 8 + kept.encode().length + 8;
+            ByteBuffer data = ByteBuffer.allocate(1);
+            channel.read(data, payload);
+            data.put(0, (byte) ~data.get(0)).rewind();
+            channel.write(data, payload);
+        }
+
+        try (AccessEventJournal journal = AccessEventJournal.open(dir, SEGMENT_BYTES, true)) {
+            assertThat(journal.uncommitted())
+                    .extracting(AccessEventJournal.Entry::getEvent)
+                    .containsExactly(kept);
+            journal.append(later);
+        }
+
+        try (AccessEventJournal journal = AccessEventJournal.open(dir, SEGMENT_BYTES, true)) {
+            assertThat(journal.uncommitted())
+                    .extracting(AccessEventJournal.Entry::getEvent)
+                    .containsExactly(kept, later);
+        }
+    }
+
+    @Test
+    void committingPastASegmentDeletesIt() throws IOException {
+        int segmentBytes = 512;
+        try (AccessEventJournal journal = AccessEventJournal.open(dir, segmentBytes, false)) {
+            AccessEventJournal.Position last = null;
+            for (int i = 0; i < 20; i++) {
+                last = journal.append(event("E-" + i));
+            }
+            assertThat(segments()).hasSizeGreaterThan(2);
+
+            List<AccessEventJournal.Entry> entries = journal.uncommitted();
+            assertThat(entries).hasSize(20);
+            journal.commit(entries.get(14).getPosition());
+
+            assertThat(journal.uncommitted())
+                    .extracting(entry -> entry.getEvent().getEmployeeId())
+                    .containsExactly("E-15", "E-16", "E-17", "E-18", "E-19");
+            assertThat(segments()).hasSizeLessThan(3);
+
+            journal.commit(last);
+            assertThat(journal.uncommitted()).isEmpty();
+            assertThat(journal.uncommittedBytes()).isZero();
+        }
+    }
+
+    private static AccessEvent event(String employeeId) {
+        return AccessEvent.builder()
+                .accessLogId(UUID.randomUUID())
+                .areaId("A-1")
+                .employeeId(employeeId)
+                .timestamp(LocalDateTime.of(2026, 10, 17, 8, 30, 15, 123_456_789))
+                .authorized(true)
+                .accessType("IN")
+                .recognitionId(UUID.randomUUID())
+                .segmentationModelId("seg")
+                .recognitionModelId("rec")
+                .confidence(0.87f)
+                .build();
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+}
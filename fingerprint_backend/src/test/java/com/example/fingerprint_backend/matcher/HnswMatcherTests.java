@@ -0,0 +1,95 @@
+package com.example.fingerprint_backend.matcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The HNSW graph has to return what an exact scan of the same gallery returns,
+ * both for a graph built in bulk and for rows linked in one at a time.
+ */
+class HnswMatcherTests {
+
+    private static final int DIMENSION = 64;
+    private static final int ROWS = 3000;
+    private static final int PROBES = 200;
+    private static final int K = 10;
+
+    @Test
+    void recallAgainstExactScanOfABulkBuiltGraph() {
+        Random random = new Random(42);
+        EmbeddingIndex index = new EmbeddingIndex(DIMENSION);
+        for (int row = 0; row < ROWS; row++) {
+            index.add("E-" + row, "F-" + row, randomVector(random));
+        }
+
+        HnswMatcher hnsw = HnswMatcher.build(index, 16, 200, 100, 0);
+
+        assertThat(recall(hnsw, new ExactScanMatcher(index), random)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void recallAgainstExactScanOfAnIncrementallyLinkedGraph() {
+        Random random = new Random(7);
+        EmbeddingIndex index = new EmbeddingIndex(DIMENSION);
+        HnswMatcher hnsw = HnswMatcher.build(index, 16, 200, 100, 0);
+        for (int row = 0; row < ROWS; row++) {
+            hnsw.add("E-" + row, "F-" + row, randomVector(random));
+        }
+
+        assertThat(hnsw.size()).isEqualTo(ROWS);
+        assertThat(recall(hnsw, new ExactScanMatcher(index), random)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void noisyScanOfAnEnrolledFingerFindsThatFingerFirst() {
+        Random random = new Random(11);
+        EmbeddingIndex index = new EmbeddingIndex(DIMENSION);
+        float[][] enrolled = new float[ROWS][];
+        for (int row = 0; row < ROWS; row++) {
+            enrolled[row] = randomVector(random);
+            index.add("E-" + row, "F-" + row, enrolled[row]);
+        }
+        HnswMatcher hnsw = HnswMatcher.build(index, 16, 200, 100, 0);
+
+        for (int probe = 0; probe < PROBES; probe++) {
+            int row = random.nextInt(ROWS);
+            float[] scan = enrolled[row].clone();
+            for (int i = 0; i < DIMENSION; i++) {
+                scan[i] += (float) random.nextGaussian() * 0.1f;
+            }
+            assertThat(hnsw.search(scan, 1)).extracting(MatchCandidate::getEmployeeId).containsExactly("E-" + row);
+        }
+    }
+
+    private static double recall(FingerprintMatcher approximate, FingerprintMatcher exact, Random random) {
+        int found = 0;
+        for (int probe = 0; probe < PROBES; probe++) {
+            float[] query = randomVector(random);
+            Set<String> expected = new HashSet<>();
+            for (MatchCandidate candidate : exact.search(query, K)) {
+                expected.add(candidate.getFingerprintId());
+            }
+            List<MatchCandidate> actual = approximate.search(query, K);
+            for (MatchCandidate candidate : actual) {
+                if (expected.contains(candidate.getFingerprintId())) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (PROBES * K);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.fingerprint_backend.matcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Crash recovery of the template store: rows written after the last checkpoint
+ * come back from the append log, a torn record at the end of the log is
+ * dropped, and {@code CURRENT} only ever names a complete generation.
+ */
+class TemplateStoreTests {
+
+    private static final int DIMENSION = 8;
+    private static final String MODEL = "rec-model";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rowsAddedAfterTheCheckpointAreReplayedFromTheLog() throws IOException {
+        TemplateStore crashed = TemplateStore.open(dir, MODEL, true);
+        EmbeddingIndex written = crashed.rebuild(DIMENSION, index -> {
+            index.add("E-1", "F-1", vector(1));
+            index.add("E-2", "F-2", vector(2));
+        });
+        written.add("E-3", "F-3", vector(3));
+
+        // reopened without close(), so the header still counts two rows
+        try (TemplateStore reopened = TemplateStore.open(dir, MODEL, true)) {
+            EmbeddingIndex index = reopened.index();
+            assertThat(index.size()).isEqualTo(3);
+            assertThat(index.employeeId(2)).isEqualTo("E-3");
+            assertThat(index.fingerprintId(2)).isEqualTo("F-3");
+            assertThat(index.vector(2)).containsExactly(EmbeddingIndex.normalize(vector(3)));
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndOfTheLogIsTruncated() throws IOException {
+        TemplateStore crashed = TemplateStore.open(dir, MODEL, true);
+        EmbeddingIndex written = crashed.rebuild(DIMENSION, index -> index.add("E-1", "F-1", vector(1)));
+        written.add("E-2", "F-2", vector(2));
+
+        Path log = dir.resolve("templates-1.log");
+        long recordBytes = Integer.BYTES + TemplateStore.VECTOR_OFFSET_BYTES + DIMENSION * Float.BYTES;
+        assertThat(Files.size(log)).isEqualTo(recordBytes);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // half of the record for row 2
+            ByteBuffer partial = ByteBuffer.allocate((int) recordBytes / 2);
+            partial.putInt(0, 2);
+            channel.write(partial);
+        }
+
+        try (TemplateStore reopened = TemplateStore.open(dir, MODEL, true)) {
+            assertThat(reopened.index().size()).isEqualTo(2);
+            assertThat(reopened.index().employeeId(1)).isEqualTo("E-2");
+            assertThat(Files.size(log)).isEqualTo(recordBytes);
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void rebuildSwapsCurrentToTheNewGenerationAndRemovesTheOldOne() throws IOException {
+        try (TemplateStore store = TemplateStore.open(dir, MODEL, false)) {
+            store.rebuild(DIMENSION, index -> index.add("E-OLD", "F-1", vector(1)));
+            store.rebuild(DIMENSION, index -> index.add("E-NEW", "F-1", vector(2)));
+
+            assertThat(store.generation()).isEqualTo(2);
+            assertThat(Files.readString(dir.resolve("CURRENT"), StandardCharsets.US_ASCII)).isEqualTo("2");
+            assertThat(dir.resolve("templates-1.dat")).doesNotExist();
+            assertThat(dir.resolve("templates-1.log")).doesNotExist();
+        }
+
+        try (TemplateStore reopened = TemplateStore.open(dir, MODEL, false)) {
+            assertThat(reopened.generation()).isEqualTo(2);
+            assertThat(reopened.index().size()).isEqualTo(1);
+            assertThat(reopened.index().employeeId(0)).isEqualTo("E-NEW");
+        }
+    }
+
+    @Test
+    void failedRebuildKeepsTheLiveGeneration() throws IOException {
+        try (TemplateStore store = TemplateStore.open(dir, MODEL, false)) {
+            store.rebuild(DIMENSION, index -> index.add("E-1", "F-1", vector(1)));
+
+            assertThatThrownBy(() -> store.rebuild(DIMENSION, index -> {
+                index.add("E-2", "F-2", vector(2));
+                throw new IllegalStateException("gallery export failed");
+            })).isInstanceOf(IllegalStateException.class);
+
+            assertThat(store.generation()).isEqualTo(1);
+            assertThat(store.index().size()).isEqualTo(1);
+            assertThat(Files.readString(dir.resolve("CURRENT"), StandardCharsets.US_ASCII)).isEqualTo("1");
+            assertThat(dir.resolve("templates-2.dat")).doesNotExist();
+        }
+    }
+
+    @Test
+    void resetStartsAnEmptyGenerationOfTheSameDimension() throws IOException {
+        try (TemplateStore store = TemplateStore.open(dir, MODEL, false)) {
+            store.rebuild(DIMENSION, index -> index.add("E-1", "F-1", vector(1)));
+
+            EmbeddingIndex index = store.reset();
+
+            assertThat(store.isEmpty()).isTrue();
+            assertThat(store.generation()).isEqualTo(2);
+            assertThat(index.dimension()).isEqualTo(DIMENSION);
+        }
+    }
+
+    private static float[] vector(int seed) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) Math.sin(seed * 31 + i);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.journal.AccessEventJournal;
+import com.example.fingerprint_backend.model.AccessLog;
+import com.example.fingerprint_backend.model.Area;
+import com.example.fingerprint_backend.model.Employee;
+import com.example.fingerprint_backend.repository.AreaRepository;
+import com.example.fingerprint_backend.repository.EmployeeRepository;
+import com.example.fingerprint_backend.util.TimeOrderedUuid;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The write-behind path must not stall on an event the database will never
+ * accept: the row is dead-lettered, the events around it are inserted and the
+ * journal checkpoint moves past all of them.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:access-log-writer;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "fingerprint.journal.enabled=true",
+        "fingerprint.journal.flush-interval-millis=10",
+        "fingerprint.matcher.enabled=false",
+        "fingerprint.models.preload-on-startup=false"
+})
+class AccessLogWriterTests {
+
+    private static final Path JOURNAL_DIR = createJournalDir();
+
+    @Autowired
+    private AccessLogWriter accessLogWriter;
+
+    @Autowired
+    private AreaRepository areaRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) {
+        registry.add("fingerprint.journal.dir", JOURNAL_DIR::toString);
+    }
+
+    @Test
+    void foreignKeyFailureIsDeadLetteredWithoutBlockingLaterEvents() throws Exception {
+        Employee employee = employeeRepository.save(new Employee("E-ALW-1", "Writer Test", "0", "-", 1));
+        Area area = areaRepository.save(Area.builder().id("A-ALW-1").name("Gate").securityLevel(1).build());
+        // an area that was deleted after the scan was decided, as DataGenerator.clearExistingData does
+        Area deleted = Area.builder().id("A-ALW-DELETED").name("Gone").securityLevel(1).build();
+
+        AccessLog before = accessLogWriter.record(accessLog(employee, area), null);
+        AccessLog orphan = accessLogWriter.record(accessLog(employee, deleted), null);
+        AccessLog after = accessLogWriter.record(accessLog(employee, area), null);
+
+        Map<String, Object> stats = awaitStats(s -> (long) s.get("deadLettered") == 1
+                && (long) s.get("journalBacklogBytes") == 0);
+
+        assertThat(stats.get("queued")).isEqualTo(0);
+        assertThat(ids()).contains(before.getId(), after.getId()).doesNotContain(orphan.getId());
+
+        try (AccessEventJournal deadLetters = AccessEventJournal.open(JOURNAL_DIR.resolve("dead-letter"), 1 << 16, false)) {
+            assertThat(deadLetters.uncommitted())
+                    .extracting(entry -> entry.getEvent().getAccessLogId())
+                    .containsExactly(orphan.getId());
+        }
+    }
+
+    private static AccessLog accessLog(Employee employee, Area area) {
+        return AccessLog.builder()
+                .employee(employee)
+                .area(area)
+                .timestamp(LocalDateTime.now())
+                .authorized(true)
+                .accessType("IN")
+                .build();
+    }
+
+    private List<UUID> ids() {
+        return jdbcTemplate.query("SELECT id FROM access_log",
+                (resultSet, row) -> TimeOrderedUuid.fromBytes(resultSet.getBytes(1)));
+    }
+
+    private Map<String, Object> awaitStats(Predicate<Map<String, Object>> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        Map<String, Object> stats = accessLogWriter.stats();
+        while (!condition.test(stats) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            stats = accessLogWriter.stats();
+        }
+        assertThat(condition).as("writer stats %s", stats).accepts(stats);
+        return stats;
+    }
+
+    private static Path createJournalDir() {
+        try {
+            return Files.createTempDirectory("access-log-writer");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.fingerprint_backend.service;
+
+import com.example.fingerprint_backend.repository.AreaAccessRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A grant or revocation that commits while a reload is querying must survive
+ * the reload swapping in its result.
+ */
+class AuthorizationMatrixTests {
+
+    private final AreaAccessRepository repository = mock(AreaAccessRepository.class);
+    private final AuthorizationMatrix matrix = new AuthorizationMatrix(repository);
+
+    @Test
+    void changesCommittedDuringTheReloadQueryAreKept() {
+        List<Object[]> before = new ArrayList<>();
+        before.add(new Object[]{"E-1", "A-1"});
+        before.add(new Object[]{"E-2", "A-1"});
+        when(repository.findAllEmployeeAreaPairs()).thenAnswer(invocation -> {
+            // these commit after the snapshot below was read
+            matrix.grant("E-3", "A-2");
+            matrix.updateAll(List.of(Map.entry("E-2", "A-1")), false);
+            return before;
+        });
+
+        matrix.reload();
+
+        assertThat(matrix.isAuthorized("E-1", "A-1")).isTrue();
+        assertThat(matrix.isAuthorized("E-3", "A-2")).isTrue();
+        assertThat(matrix.isAuthorized("E-2", "A-1")).isFalse();
+    }
+
+    @Test
+    void changesBeforeTheReloadAreNotReplayedOverItsResult() {
+        when(repository.findAllEmployeeAreaPairs()).thenReturn(List.<Object[]>of(new Object[]{"E-1", "A-1"}));
+        matrix.revoke("E-1", "A-1");
+
+        matrix.reload();
+
+        assertThat(matrix.isAuthorized("E-1", "A-1")).isTrue();
+    }
+}
@@ -111,8 +111,21 @@ export const apiService = {
     if (areaId) {
       url.searchParams.append("areaId", areaId);
     }
-    
-    return fetch(url).then((response) => response.json());
+
+    // the endpoint is paged; follow X-Next-Cursor until the last page
+    const fetchPages = (cursor, logs) => {
+      if (cursor) {
+        url.searchParams.set("cursor", cursor);
+      }
+      return fetch(url).then((response) =>
+        response.json().then((page) => {
+          const next = response.headers.get("X-Next-Cursor");
+          const all = logs.concat(page);
+          return next ? fetchPages(next, all) : all;
+        })
+      );
+    };
+    return fetchPages(null, []);
   },
 };
 